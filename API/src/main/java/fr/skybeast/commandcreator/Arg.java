@@ -26,4 +26,9 @@ public @interface Arg
 	 * @return the type of the argument
 	 */
 	String type() default "";
+
+	/**
+	 * @return the maximum number of tab completes of the argument, 0 for no limit, or -1 for the configured maximum
+	 */
+	int maxTabCompletes() default -1;
 }
@@ -0,0 +1,22 @@
+package fr.skybeast.commandcreator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Run a command off the server thread by adding this annotation to a method.
+ * <p>
+ * The arguments are parsed and the permissions checked as usual, then the method runs on a bounded executor.
+ * The method may return a Runnable: this completion hook is run back on the server thread once the method is done.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Async
+{
+	/**
+	 * @return the time in milliseconds after which the command is cancelled, or 0 for no timeout
+	 */
+	long timeout() default 0;
+}
@@ -0,0 +1,74 @@
+package fr.skybeast.commandcreator;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A custom command serializer whose lookups may block, such as database or profile queries.
+ * <p>
+ * The async arguments of a command are all resolved in parallel, and the command is dispatched once they complete.
+ * A future completed exceptionally with a CommandSerializationException is a parse failure.
+ *
+ * @param <T> the type of the serializer
+ */
+public interface AsyncCommandSerializer<T> extends CommandSerializer<T>
+{
+	/**
+	 * Start the lookup of an argument. This must not block.
+	 *
+	 * @param arg the argument to serialize
+	 * @return the future of the serialized argument
+	 */
+	CompletableFuture<T> serializeAsync(String arg);
+
+	/**
+	 * Serialize an argument, waiting for the lookup.
+	 * <p>
+	 * Never used by the dispatch, which awaits the lookups.
+	 *
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	@Override
+	default T serialize(String arg)
+			throws CommandSerializationException
+	{
+		try
+		{
+			return serializeAsync(arg).join();
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof CommandSerializationException)
+				throw (CommandSerializationException) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Try to serialize an argument, waiting for the lookup.
+	 * <p>
+	 * A lookup which failed for another reason than a CommandSerializationException fails as an invalid type.
+	 *
+	 * @param arg    the argument to serialize
+	 * @param result the result receiving the failure
+	 * @return the serialized argument, or null if the parse failed
+	 */
+	@Override
+	default T tryParse(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeAsync(arg).join();
+		}
+		catch (CompletionException | CancellationException e)
+		{
+			Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+			result.fail(cause instanceof CommandSerializationException ? ParseFailure.message(cause.getMessage())
+					: ParseFailure.INVALID_TYPE);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A BK-tree of labels, to find the closest label to a mistyped one.
+ * <p>
+ * Labels are compared ignoring case, with the Levenshtein distance: insertions, deletions and substitutions each
+ * cost 1. It is a metric, so the triangle inequality lets a search skip most subtrees.
+ */
+final class BKTree
+{
+	private final Node root; //The root, or null if no labels
+
+	/**
+	 * Build the tree of some labels.
+	 *
+	 * @param labels the labels
+	 */
+	BKTree(String[] labels)
+	{
+		Node root = null;
+		for (int i = 0; i < labels.length; i++)
+		{
+			Node node = new Node(labels[i], i);
+			if (root == null)
+				root = node;
+			else
+				root.add(node);
+		}
+		this.root = root;
+	}
+
+	/**
+	 * Find the closest label within a distance.
+	 * Ties are broken by the order of the labels.
+	 *
+	 * @param str         the mistyped label
+	 * @param maxDistance the maximum distance
+	 * @return the closest label, or null if none is within the distance
+	 */
+	String closest(String str, int maxDistance)
+	{
+		if (root == null)
+			return null;
+
+		Search search = new Search(str.toLowerCase(), maxDistance);
+		search.visit(root);
+		return search.best == null ? null : search.best.label;
+	}
+
+	/**
+	 * Compute the Levenshtein distance between two Strings.
+	 *
+	 * @param a   the first String
+	 * @param b   the second String
+	 * @param row the row of the computation, at least as long as b plus one
+	 * @return the distance
+	 */
+	static int distance(String a, String b, int[] row)
+	{
+		int n = a.length();
+		int m = b.length();
+
+		for (int j = 0; j <= m; j++)
+			row[j] = j;
+
+		for (int i = 1; i <= n; i++)
+		{
+			int diagonal = row[0]; //Row i - 1, column j - 1
+			row[0] = i;
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= m; j++)
+			{
+				int above = row[j]; //Row i - 1, column j
+				int cost = ca == b.charAt(j - 1) ? 0 : 1;
+				row[j] = Math.min(Math.min(above + 1, row[j - 1] + 1), diagonal + cost);
+				diagonal = above;
+			}
+		}
+
+		return row[m];
+	}
+
+	/**
+	 * A node of the tree.
+	 */
+	private static final class Node
+	{
+		private final String label; //The label
+		private final String key; //The lower case label
+		private final int order; //The order of insertion, to break ties
+		private Node[] children; //The children, by distance to this node -- null if none
+
+		Node(String label, int order)
+		{
+			this.label = label;
+			key = label.toLowerCase();
+			this.order = order;
+		}
+
+		/**
+		 * Add a node below this one.
+		 *
+		 * @param node the node
+		 */
+		void add(Node node)
+		{
+			Node parent = this;
+			while (true)
+			{
+				int d = distance(parent.key, node.key, new int[node.key.length() + 1]);
+				if (d == 0) //Same label, ignoring case
+					return;
+
+				if (parent.children == null || parent.children.length <= d)
+				{
+					Node[] grown = new Node[d + 1];
+					if (parent.children != null)
+						System.arraycopy(parent.children, 0, grown, 0, parent.children.length);
+					parent.children = grown;
+				}
+
+				Node child = parent.children[d];
+				if (child == null)
+				{
+					parent.children[d] = node;
+					return;
+				}
+				parent = child;
+			}
+		}
+	}
+
+	/**
+	 * A search of the closest label.
+	 */
+	private static final class Search
+	{
+		private final String key; //The lower case mistyped label
+		private int radius; //The maximum distance, shrunk as better labels are found
+		private Node best; //The closest node so far
+		private int bestDistance; //The distance of the closest node
+		private int[] row = new int[32]; //The row of the distance computations, grown as needed
+
+		Search(String key, int radius)
+		{
+			this.key = key;
+			this.radius = radius;
+		}
+
+		/**
+		 * Visit a node and the subtrees which may contain closer labels.
+		 *
+		 * @param node the node
+		 */
+		void visit(Node node)
+		{
+			if (row.length <= node.key.length())
+				row = new int[node.key.length() + 1];
+
+			int d = distance(key, node.key, row);
+			if (d <= radius && (best == null || d < bestDistance || d == bestDistance && node.order < best.order))
+			{
+				best = node;
+				bestDistance = d;
+				radius = d; //Only look for labels at least as close
+			}
+
+			if (node.children == null)
+				return;
+
+			//Triangle inequality: the children within the radius are at distance d +/- radius of this node
+			int from = Math.max(1, d - radius);
+			int to = Math.min(node.children.length - 1, d + radius);
+			for (int i = from; i <= to; i++)
+				if (node.children[i] != null)
+					visit(node.children[i]);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for a byte argument.
+ * <p>
+ * When the parameter is a byte, the argument is given to the method without boxing.
+ */
+public interface ByteCommandSerializer extends CommandSerializer<Byte>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	byte serializeByte(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default byte tryParseByte(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeByte(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Byte serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeByte(arg);
+	}
+
+	@Override
+	default Byte tryParse(String arg, ParseResult result)
+	{
+		return tryParseByte(arg, result);
+	}
+}
@@ -0,0 +1,118 @@
+package fr.skybeast.commandcreator;
+
+import java.util.*;
+
+/**
+ * An immutable list of choices, each mapped to a value by its label.
+ * <p>
+ * The labels are kept in a sorted array: resolving a label is a binary search, and the labels starting with a prefix
+ * are a range of the array, returned as a view already sorted.
+ * The labels are also indexed in a BK-tree built once, to suggest the closest label to a mistyped one.
+ *
+ * @param <T> the type of the values
+ */
+public final class ChoiceList<T>
+{
+	private final String[] labels; //The sorted labels
+	private final List<T> values; //The value of each label, in the same order
+	private final BKTree fuzzy; //The labels, to suggest the closest one to a mistyped label
+
+	/**
+	 * Create a choice list from the labels and their values.
+	 *
+	 * @param choices the values by label
+	 */
+	public ChoiceList(Map<String, ? extends T> choices)
+	{
+		SortedMap<String, ? extends T> sorted = new TreeMap<>(choices);
+		labels = sorted.keySet().toArray(new String[sorted.size()]);
+		values = Collections.unmodifiableList(new ArrayList<>(sorted.values()));
+		fuzzy = new BKTree(labels);
+	}
+
+	/**
+	 * Create a choice list from the constants of an enum, labelled by their toString.
+	 *
+	 * @param <E>   the type of the enum
+	 * @param clazz the enum
+	 * @return the choice list
+	 */
+	public static <E extends Enum<E>> ChoiceList<E> ofEnum(Class<E> clazz)
+	{
+		Map<String, E> map = new HashMap<>();
+		for (E constant : clazz.getEnumConstants())
+			map.put(constant.toString(), constant);
+
+		return new ChoiceList<>(map);
+	}
+
+	/**
+	 * Get the value of a label.
+	 *
+	 * @param label the label
+	 * @return the value, or null if the label is not part of the choices
+	 */
+	public T get(String label)
+	{
+		int i = Arrays.binarySearch(labels, label);
+		return i < 0 ? null : values.get(i);
+	}
+
+	/**
+	 * Get the label closest to a mistyped label, ignoring case, for a "did you mean" suggestion.
+	 *
+	 * @param label the mistyped label
+	 * @return the closest label, or null if none is close enough
+	 */
+	public String suggest(String label)
+	{
+		return fuzzy.closest(label, label.length() <= 3 ? 1 : 2); //Short labels are too close to each other
+	}
+
+	/**
+	 * Get the sorted labels starting with a prefix.
+	 *
+	 * @param prefix the prefix
+	 * @return the unmodifiable view of the labels
+	 */
+	public CompletionRange complete(String prefix)
+	{
+		return CompletionRange.of(labels, prefix);
+	}
+
+	/**
+	 * Get the sorted labels.
+	 *
+	 * @return the unmodifiable list of the labels
+	 */
+	public CompletionRange getLabels()
+	{
+		return CompletionRange.all(labels);
+	}
+
+	/**
+	 * Get the values, sorted by label.
+	 *
+	 * @return the unmodifiable list of the values
+	 */
+	public List<T> getValues()
+	{
+		return values;
+	}
+
+	/**
+	 * Get the number of choices.
+	 *
+	 * @return the number of choices
+	 */
+	public int size()
+	{
+		return labels.length;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ChoiceList" + Arrays.toString(labels);
+	}
+}
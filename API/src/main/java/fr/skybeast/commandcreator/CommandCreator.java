@@ -1,5 +1,7 @@
 package fr.skybeast.commandcreator;
 
+import java.util.UUID;
+
 /**
  * The API for easy command-creation.
  */
@@ -24,5 +26,74 @@ public abstract class CommandCreator
 		impl.registerCommandsImpl(clazz, plugin);
 	}
 
+	/**
+	 * Unregister the commands of a plugin, and release everything cached for its classes.
+	 * This is done when the plugin is disabled, where the platform supports it.
+	 * @param plugin the command's plugin
+	 */
+	public static void unregisterCommands(Object plugin)
+	{
+		impl.unregisterCommandsImpl(plugin);
+	}
+
+	/**
+	 * Unregister the commands registered from a class.
+	 * @param clazz the class
+	 */
+	public static void unregisterCommands(Class<?> clazz)
+	{
+		impl.unregisterCommandsImpl(clazz);
+	}
+
+	/**
+	 * Register a type of command sender, named in the message sent to the senders of another type.
+	 * @param senderClass the class of the senders, such as a fake player
+	 * @param name the key of the name in the senderTypes section of the messages, or the name itself if missing
+	 */
+	public static void registerSenderType(Class<?> senderClass, String name)
+	{
+		impl.registerSenderTypeImpl(senderClass, name);
+	}
+
+	/**
+	 * Invalidate the cached tab completes of the custom serializers.
+	 * Call this when the values they complete have changed.
+	 */
+	public static void invalidateTabCompletes()
+	{
+		impl.invalidateTabCompletesImpl();
+	}
+
+	/**
+	 * Invalidate the cached permission decisions of every player.
+	 * Call this when the permissions of the players or groups have changed.
+	 */
+	public static void invalidatePermissions()
+	{
+		impl.invalidatePermissionsImpl();
+	}
+
+	/**
+	 * Invalidate the cached permission decisions of a player.
+	 * Call this when the permissions of the player have changed.
+	 * @param player the unique id of the player
+	 */
+	public static void invalidatePermissions(UUID player)
+	{
+		impl.invalidatePermissionsImpl(player);
+	}
+
 	protected abstract void registerCommandsImpl(Class<?> clazz, Object plugin);
+
+	protected abstract void unregisterCommandsImpl(Object plugin);
+
+	protected abstract void unregisterCommandsImpl(Class<?> clazz);
+
+	protected abstract void registerSenderTypeImpl(Class<?> senderClass, String name);
+
+	protected abstract void invalidateTabCompletesImpl();
+
+	protected abstract void invalidatePermissionsImpl();
+
+	protected abstract void invalidatePermissionsImpl(UUID player);
 }
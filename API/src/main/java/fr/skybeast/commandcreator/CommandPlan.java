@@ -0,0 +1,322 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * The plan of a command: what its annotations declare.
+ * <p>
+ * A plan is either a compound, declared by a class, or a method. The plans are generated at compile time by the
+ * CommandCreator processor, see {@link GeneratedCommands}, or read by reflection when the class was compiled without
+ * it. The commands are built from the plans when they are registered.
+ */
+public final class CommandPlan
+{
+	private static final Parameter[] NO_PARAMETERS = new Parameter[0];
+
+	/*
+	 * Command
+	 */
+	private final String label;
+	private final String description;
+	private final String[] permissions;
+	private final String[] aliases;
+
+	/*
+	 * Compound
+	 */
+	private final CommandPlan executor; //The default executor -- null if none
+	private final CommandPlan[] subCommands; //The sub commands -- null if this plan is a method
+
+	/*
+	 * Method
+	 */
+	private final int index; //The index of the method in its source
+	private final String name; //The name of the method, for the error messages
+	private final Class<?> senderType; //The type of the first parameter -- null if the method has no parameter
+	private final boolean async; //Is the method @Async?
+	private final long timeout; //The timeout of @Async
+	private final Parameter[] parameters; //The parameters, sender excluded
+
+	private CommandPlan(String label, String description, String[] permissions, String[] aliases,
+	                    CommandPlan executor, CommandPlan[] subCommands, int index, String name,
+	                    Class<?> senderType, boolean async, long timeout, Parameter[] parameters)
+	{
+		this.label = label;
+		this.description = description;
+		this.permissions = permissions;
+		this.aliases = aliases;
+		this.executor = executor;
+		this.subCommands = subCommands;
+		this.index = index;
+		this.name = name;
+		this.senderType = senderType;
+		this.async = async;
+		this.timeout = timeout;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Create the plan of a compound.
+	 *
+	 * @param label       the label of the compound
+	 * @param description the description of the compound
+	 * @param permissions the permissions needed to execute the compound
+	 * @param aliases     the aliases of the compound
+	 * @param executor    the plan of the default executor, or null if none
+	 * @param subCommands the plans of the sub commands
+	 * @return the plan
+	 */
+	public static CommandPlan compound(String label, String description, String[] permissions, String[] aliases,
+	                                   CommandPlan executor, CommandPlan... subCommands)
+	{
+		return new CommandPlan(label, description, permissions, aliases, executor, subCommands, -1, null, null,
+				false, 0, NO_PARAMETERS);
+	}
+
+	/**
+	 * Create the plan of a command method.
+	 *
+	 * @param index       the index of the method in its source
+	 * @param name        the name of the method, for the error messages
+	 * @param label       the label of the command
+	 * @param description the description of the command
+	 * @param permissions the permissions needed to execute the command
+	 * @param aliases     the aliases of the command
+	 * @param senderType  the type of the first parameter, or null if the method has no parameter
+	 * @param async       true if the method is @Async
+	 * @param timeout     the timeout of @Async
+	 * @param parameters  the plans of the parameters, sender excluded
+	 * @return the plan
+	 */
+	public static CommandPlan method(int index, String name, String label, String description,
+	                                 String[] permissions, String[] aliases, Class<?> senderType, boolean async,
+	                                 long timeout, Parameter... parameters)
+	{
+		return new CommandPlan(label, description, permissions, aliases, null, null, index, name, senderType, async,
+				timeout, parameters);
+	}
+
+	/**
+	 * Create the plan of the default executor of a compound.
+	 *
+	 * @param index      the index of the method in its source
+	 * @param name       the name of the method, for the error messages
+	 * @param senderType the type of the only parameter
+	 * @param async      true if the method is @Async
+	 * @param timeout    the timeout of @Async
+	 * @return the plan
+	 */
+	public static CommandPlan executor(int index, String name, Class<?> senderType, boolean async, long timeout)
+	{
+		return method(index, name, null, null, null, null, senderType, async, timeout);
+	}
+
+	/**
+	 * @return true if this plan is a compound, false if it is a method
+	 */
+	public boolean isCompound()
+	{
+		return subCommands != null;
+	}
+
+	/**
+	 * @return the label of the command, or null if this plan is a default executor
+	 */
+	public String getLabel()
+	{
+		return label;
+	}
+
+	/**
+	 * @return the description of the command
+	 */
+	public String getDescription()
+	{
+		return description;
+	}
+
+	/**
+	 * @return the permissions needed to execute the command
+	 */
+	public String[] getPermissions()
+	{
+		return permissions;
+	}
+
+	/**
+	 * @return the aliases of the command
+	 */
+	public String[] getAliases()
+	{
+		return aliases;
+	}
+
+	/**
+	 * @return the plan of the default executor of the compound, or null if none
+	 */
+	public CommandPlan getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * @return the plans of the sub commands of the compound
+	 */
+	public CommandPlan[] getSubCommands()
+	{
+		return subCommands;
+	}
+
+	/**
+	 * @return the index of the method in its source
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * @return the name of the method, for the error messages
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the type of the first parameter of the method, or null if the method has no parameter
+	 */
+	public Class<?> getSenderType()
+	{
+		return senderType;
+	}
+
+	/**
+	 * @return true if the method is @Async
+	 */
+	public boolean isAsync()
+	{
+		return async;
+	}
+
+	/**
+	 * @return the timeout of @Async, in milliseconds, or 0 for no timeout
+	 */
+	public long getTimeout()
+	{
+		return timeout;
+	}
+
+	/**
+	 * @return the plans of the parameters of the method, sender excluded
+	 */
+	public Parameter[] getParameters()
+	{
+		return parameters;
+	}
+
+	@Override
+	public String toString()
+	{
+		return isCompound() ? "compound " + label : name;
+	}
+
+	/**
+	 * The plan of a parameter of a command method.
+	 */
+	public static final class Parameter
+	{
+		private final Class<?> type;
+		private final String name;
+		private final String description;
+		private final String valueType;
+		private final int maxTabCompletes;
+		private final boolean optional;
+		private final Class<? extends CommandSerializer> serializer;
+
+		private Parameter(Class<?> type, String name, String description, String valueType, int maxTabCompletes,
+		                  boolean optional, Class<? extends CommandSerializer> serializer)
+		{
+			this.type = type;
+			this.name = name;
+			this.description = description;
+			this.valueType = valueType;
+			this.maxTabCompletes = maxTabCompletes;
+			this.optional = optional;
+			this.serializer = serializer;
+		}
+
+		/**
+		 * Create the plan of a parameter.
+		 *
+		 * @param type            the type of the parameter
+		 * @param name            the name of the argument
+		 * @param description     the description of the argument, empty if none
+		 * @param valueType       the type of the argument shown in the usages, or null for the one of its serializer
+		 * @param maxTabCompletes the maximum number of tab completes, see {@link Arg#maxTabCompletes()}
+		 * @param optional        true if the parameter is @Opt
+		 * @param serializer      the class of the serializer of @Serial, or null if none
+		 * @return the plan
+		 */
+		public static Parameter of(Class<?> type, String name, String description, String valueType,
+		                           int maxTabCompletes, boolean optional,
+		                           Class<? extends CommandSerializer> serializer)
+		{
+			return new Parameter(type, name, description, valueType, maxTabCompletes, optional, serializer);
+		}
+
+		/**
+		 * @return the type of the parameter
+		 */
+		public Class<?> getType()
+		{
+			return type;
+		}
+
+		/**
+		 * @return the name of the argument
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return the description of the argument, empty if none
+		 */
+		public String getDescription()
+		{
+			return description;
+		}
+
+		/**
+		 * @return the type of the argument shown in the usages, or null for the one of its serializer
+		 */
+		public String getValueType()
+		{
+			return valueType;
+		}
+
+		/**
+		 * @return the maximum number of tab completes, see {@link Arg#maxTabCompletes()}
+		 */
+		public int getMaxTabCompletes()
+		{
+			return maxTabCompletes;
+		}
+
+		/**
+		 * @return true if the parameter is @Opt
+		 */
+		public boolean isOptional()
+		{
+			return optional;
+		}
+
+		/**
+		 * @return the class of the serializer of @Serial, or null if none
+		 */
+		public Class<? extends CommandSerializer> getSerializer()
+		{
+			return serializer;
+		}
+	}
+}
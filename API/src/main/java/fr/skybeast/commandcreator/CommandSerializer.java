@@ -17,6 +17,29 @@ public interface CommandSerializer<T>
 	T serialize(String arg)
 			throws CommandSerializationException;
 
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 * Override this when bad input is common; the default implementation falls back to serialize.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 */
+	default T tryParse(String arg, ParseResult result)
+	{
+		try
+		{
+			return serialize(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return null;
+		}
+	}
+
 	/**
 	 * Get the value type of the serializer.
 	 *
@@ -27,7 +50,9 @@ public interface CommandSerializer<T>
 	/**
 	 * Get tab completes for this serializers.
 	 * <p>
-	 * Warning: These tab complete must be sorted.
+	 * Warning: These tab complete must be sorted. Sorted by natural order, as by {@link String#compareTo(String)},
+	 * the default getTabCompletes finds the ones starting with a prefix with a binary search; in another order, it
+	 * filters them one by one.
 	 *
 	 * @return the tab completes for this serializers
 	 */
@@ -35,4 +60,19 @@ public interface CommandSerializer<T>
 	{
 		return null;
 	}
+
+	/**
+	 * Get tab completes starting with what is being typed.
+	 * <p>
+	 * Warning: These tab complete must be sorted.
+	 * Override this when the tab completes are indexed; the default implementation filters getAllTabCompletes.
+	 *
+	 * @param prefix the argument being typed
+	 * @return the tab completes starting with the prefix, or null if none
+	 */
+	default List<String> getTabCompletes(String prefix)
+	{
+		List<String> tabCompletes = getAllTabCompletes();
+		return tabCompletes == null ? null : CompletionRange.of(tabCompletes, prefix);
+	}
 }
@@ -0,0 +1,178 @@
+package fr.skybeast.commandcreator;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable view of the Strings of a sorted array starting with a prefix.
+ * <p>
+ * The range is found with binary searches, and the view reads the backing array: a completion costs one object, and
+ * is iterated lazily. The backing array must never be modified once viewed.
+ */
+public final class CompletionRange extends AbstractList<String> implements RandomAccess
+{
+	private static final CompletionRange EMPTY = new CompletionRange(new String[0], 0, 0);
+
+	private final String[] sorted; //The backing array
+	private final int from; //The start of the range, inclusive
+	private final int to; //The end of the range, exclusive
+
+	private CompletionRange(String[] sorted, int from, int to)
+	{
+		this.sorted = sorted;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * View a whole sorted array.
+	 *
+	 * @param sorted the sorted array
+	 * @return the view
+	 */
+	public static CompletionRange all(String[] sorted)
+	{
+		return sorted.length == 0 ? EMPTY : new CompletionRange(sorted, 0, sorted.length);
+	}
+
+	/**
+	 * View the Strings of an array sorted by natural order starting with a prefix.
+	 *
+	 * @param sorted the sorted array
+	 * @param prefix the prefix
+	 * @return the view
+	 */
+	public static CompletionRange of(String[] sorted, String prefix)
+	{
+		return of(sorted, prefix, null, false);
+	}
+
+	/**
+	 * View the Strings of an array sorted by String.CASE_INSENSITIVE_ORDER starting with a prefix, ignoring case.
+	 *
+	 * @param sorted the sorted array
+	 * @param prefix the prefix
+	 * @return the view
+	 */
+	public static CompletionRange ofIgnoreCase(String[] sorted, String prefix)
+	{
+		return of(sorted, prefix, String.CASE_INSENSITIVE_ORDER, true);
+	}
+
+	/**
+	 * View the Strings of a sorted array starting with a prefix.
+	 *
+	 * @param sorted     the sorted array
+	 * @param prefix     the prefix
+	 * @param order      the order of the array, or null for natural order
+	 * @param ignoreCase true if the order ignores case
+	 * @return the view
+	 */
+	private static CompletionRange of(String[] sorted, String prefix, Comparator<String> order, boolean ignoreCase)
+	{
+		if (prefix.isEmpty())
+			return all(sorted);
+
+		int from = Arrays.binarySearch(sorted, prefix, order);
+		if (from < 0)
+			from = -from - 1;
+
+		//Strings starting with the prefix are contiguous: find the first one not starting with it
+		int to = sorted.length;
+		int low = from;
+		while (low < to)
+		{
+			int mid = (low + to) >>> 1;
+			if (sorted[mid].regionMatches(ignoreCase, 0, prefix, 0, prefix.length()))
+				low = mid + 1;
+			else
+				to = mid;
+		}
+
+		return from == to ? EMPTY : new CompletionRange(sorted, from, to);
+	}
+
+	/**
+	 * View the Strings of a list sorted by natural order starting with a prefix.
+	 * <p>
+	 * Lists without random access, or sorted in another order, are filtered into a new list instead, in their order.
+	 *
+	 * @param sorted the sorted list
+	 * @param prefix the prefix
+	 * @return the unmodifiable view
+	 */
+	public static List<String> of(List<String> sorted, String prefix)
+	{
+		if (prefix.isEmpty())
+			return Collections.unmodifiableList(sorted);
+
+		if (!(sorted instanceof RandomAccess) || !isNaturallySorted(sorted))
+			return sorted.stream()
+					.filter(str -> str.startsWith(prefix))
+					.collect(Collectors.toList());
+
+		int from = Collections.binarySearch(sorted, prefix);
+		if (from < 0)
+			from = -from - 1;
+
+		int to = sorted.size();
+		int low = from;
+		while (low < to)
+		{
+			int mid = (low + to) >>> 1;
+			if (sorted.get(mid).startsWith(prefix))
+				low = mid + 1;
+			else
+				to = mid;
+		}
+
+		return Collections.unmodifiableList(sorted.subList(from, to));
+	}
+
+	/**
+	 * Check if a list is sorted by natural order, so that it can be binary searched.
+	 *
+	 * @param list the list, with random access
+	 * @return true if sorted by natural order
+	 */
+	private static boolean isNaturallySorted(List<String> list)
+	{
+		for (int i = 1; i < list.size(); i++)
+			if (list.get(i - 1).compareTo(list.get(i)) > 0)
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Get the index of the first String of the view in the backing array.
+	 *
+	 * @return the index
+	 */
+	public int getOffset()
+	{
+		return from;
+	}
+
+	@Override
+	public String get(int index)
+	{
+		if (index < 0 || index >= to - from)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+		return sorted[from + index];
+	}
+
+	@Override
+	public int size()
+	{
+		return to - from;
+	}
+
+	@Override
+	public List<String> subList(int fromIndex, int toIndex)
+	{
+		if (fromIndex < 0 || toIndex > to - from || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + (to - from));
+		return new CompletionRange(sorted, from + fromIndex, from + toIndex);
+	}
+}
@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for a double argument.
+ * <p>
+ * When the parameter is a double, the argument is given to the method without boxing.
+ */
+public interface DoubleCommandSerializer extends CommandSerializer<Double>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	double serializeDouble(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default double tryParseDouble(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeDouble(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Double serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeDouble(arg);
+	}
+
+	@Override
+	default Double tryParse(String arg, ParseResult result)
+	{
+		return tryParseDouble(arg, result);
+	}
+}
@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for a float argument.
+ * <p>
+ * When the parameter is a float, the argument is given to the method without boxing.
+ */
+public interface FloatCommandSerializer extends CommandSerializer<Float>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	float serializeFloat(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default float tryParseFloat(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeFloat(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Float serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeFloat(arg);
+	}
+
+	@Override
+	default Float tryParse(String arg, ParseResult result)
+	{
+		return tryParseFloat(arg, result);
+	}
+}
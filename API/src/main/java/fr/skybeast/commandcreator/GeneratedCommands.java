@@ -0,0 +1,39 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * The commands of a class, generated at compile time by the CommandCreator processor.
+ * <p>
+ * It is generated next to the class, named after its binary name followed by {@link #SUFFIX}. When present, the
+ * commands are built from its plans instead of from the annotations, and called directly through it: registering and
+ * dispatching the commands of the class do not use reflection.
+ */
+public interface GeneratedCommands
+{
+	/**
+	 * The suffix of the name of the generated class.
+	 */
+	String SUFFIX = "$$Commands";
+
+	/**
+	 * Get the plans of the commands of the class: the plan of its compound if the class is a @Command, else the plan
+	 * of each of its command methods.
+	 *
+	 * @return the plans
+	 */
+	CommandPlan[] getPlans();
+
+	/**
+	 * Call a command method.
+	 * <p>
+	 * Primitive arguments are read from the primitive array, as raw bits: floating point values as given by
+	 * {@link Float#floatToRawIntBits(float)} and {@link Double#doubleToRawLongBits(double)}, booleans as 1 or 0.
+	 *
+	 * @param index      the index of the method, as given by {@link CommandPlan#getIndex()}
+	 * @param args       the arguments of the method, sender first
+	 * @param primitives the raw bits of the primitive arguments, at the same index
+	 * @return what the method returned, or null if it returns void
+	 * @throws Throwable anything the method threw
+	 */
+	Object invoke(int index, Object[] args, long[] primitives)
+			throws Throwable;
+}
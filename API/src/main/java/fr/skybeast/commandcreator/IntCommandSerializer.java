@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for an int argument.
+ * <p>
+ * When the parameter is an int, the argument is given to the method without boxing.
+ */
+public interface IntCommandSerializer extends CommandSerializer<Integer>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	int serializeInt(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default int tryParseInt(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeInt(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Integer serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeInt(arg);
+	}
+
+	@Override
+	default Integer tryParse(String arg, ParseResult result)
+	{
+		return tryParseInt(arg, result);
+	}
+}
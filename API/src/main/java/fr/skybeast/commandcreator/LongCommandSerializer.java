@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for a long argument.
+ * <p>
+ * When the parameter is a long, the argument is given to the method without boxing.
+ */
+public interface LongCommandSerializer extends CommandSerializer<Long>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	long serializeLong(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default long tryParseLong(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeLong(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Long serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeLong(arg);
+	}
+
+	@Override
+	default Long tryParse(String arg, ParseResult result)
+	{
+		return tryParseLong(arg, result);
+	}
+}
@@ -0,0 +1,68 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * The failure of a parse without exceptions.
+ * <p>
+ * A failure is either a message key, looked up in the 'serializationErrors' section of the messages and formatted
+ * with the argument and its value type, or a raw message.
+ * Failures from a key are meant to be created once and reused.
+ */
+public final class ParseFailure
+{
+	/**
+	 * The argument is not of the expected type.
+	 */
+	public static final ParseFailure INVALID_TYPE = key("invalidType");
+
+	/**
+	 * The player was not found.
+	 */
+	public static final ParseFailure PLAYER_NOT_FOUND = key("playerNotFound");
+
+	private final String key;
+	private final String message;
+
+	private ParseFailure(String key, String message)
+	{
+		this.key = key;
+		this.message = message;
+	}
+
+	/**
+	 * Create a failure from a message key.
+	 *
+	 * @param key the key of the message
+	 * @return the failure
+	 */
+	public static ParseFailure key(String key)
+	{
+		return new ParseFailure(key, null);
+	}
+
+	/**
+	 * Create a failure from a raw message.
+	 *
+	 * @param message the message
+	 * @return the failure
+	 */
+	public static ParseFailure message(String message)
+	{
+		return new ParseFailure(null, message);
+	}
+
+	/**
+	 * @return the key of the message, or null if this failure has a raw message
+	 */
+	public String getKey()
+	{
+		return key;
+	}
+
+	/**
+	 * @return the raw message, or null if this failure has a message key
+	 */
+	public String getMessage()
+	{
+		return message;
+	}
+}
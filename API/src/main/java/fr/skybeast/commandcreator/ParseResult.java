@@ -0,0 +1,16 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * Receives the failure of a parse without exceptions.
+ *
+ * @see CommandSerializer#tryParse(String, ParseResult)
+ */
+public interface ParseResult
+{
+	/**
+	 * Mark the parse as failed.
+	 *
+	 * @param failure the failure
+	 */
+	void fail(ParseFailure failure);
+}
@@ -0,0 +1,53 @@
+package fr.skybeast.commandcreator;
+
+/**
+ * A custom command serializer specialized for a short argument.
+ * <p>
+ * When the parameter is a short, the argument is given to the method without boxing.
+ */
+public interface ShortCommandSerializer extends CommandSerializer<Short>
+{
+	/**
+	 * @param arg the argument to serialize
+	 * @return the serialized argument
+	 * @throws CommandSerializationException thrown if illegal syntax is found
+	 */
+	short serializeShort(String arg)
+			throws CommandSerializationException;
+
+	/**
+	 * Parse an argument without throwing exceptions.
+	 * <p>
+	 * On failure, the failure is given to the result and the returned value is ignored.
+	 *
+	 * @param arg    the argument to parse
+	 * @param result the result receiving the failure
+	 * @return the parsed argument
+	 * @see CommandSerializer#tryParse(String, ParseResult)
+	 */
+	default short tryParseShort(String arg, ParseResult result)
+	{
+		try
+		{
+			return serializeShort(arg);
+		}
+		catch (CommandSerializationException e)
+		{
+			result.fail(ParseFailure.message(e.getMessage()));
+			return 0;
+		}
+	}
+
+	@Override
+	default Short serialize(String arg)
+			throws CommandSerializationException
+	{
+		return serializeShort(arg);
+	}
+
+	@Override
+	default Short tryParse(String arg, ParseResult result)
+	{
+		return tryParseShort(arg, result);
+	}
+}
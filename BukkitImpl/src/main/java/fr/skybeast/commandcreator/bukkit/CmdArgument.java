@@ -0,0 +1,578 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import fr.skybeast.commandcreator.*;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntFunction;
+
+/**
+ * An argument slot of a command method.
+ * <p>
+ * Each CmdMethod is compiled at registration into a flat array of slots, so the dispatch does not have to find out
+ * how each argument is parsed.
+ */
+abstract class CmdArgument
+{
+	/**
+	 * Returned when the argument is not part of the expected values, or cannot be parsed.
+	 */
+	static final Object INVALID = new Object();
+
+	/**
+	 * Parse one argument.
+	 * Parse failures are given to the frame.
+	 *
+	 * @param arg   the argument
+	 * @param frame the frame of the dispatch
+	 * @return the parsed argument, or INVALID if not part of the expected values or if the parse failed
+	 */
+	abstract Object parse(String arg, CmdFrame frame);
+
+	/**
+	 * Read the argument of this slot from the command into the frame.
+	 * Parse failures are given to the frame.
+	 *
+	 * @param cmd   the arguments of the command
+	 * @param at    the location of the argument of this slot
+	 * @param frame the frame of the dispatch
+	 * @param index the index of the parameter
+	 * @return false if the argument is not part of the expected values or if the parse failed
+	 */
+	boolean read(String[] cmd, int at, CmdFrame frame, int index)
+	{
+		Object o = parse(cmd[at], frame);
+		if (o == INVALID)
+			return false;
+
+		frame.args[index] = o;
+		return true;
+	}
+
+	/**
+	 * Tab-complete the argument.
+	 *
+	 * @param str the argument being typed
+	 * @return the sorted list of tab completes, or null if none
+	 */
+	abstract List<String> completeTab(String str);
+
+	/**
+	 * Check if the argument is tab-completed, so that the values used are worth ranking.
+	 * Decided from the kind of the argument, as the tab completes may only come later, such as the online players.
+	 *
+	 * @return true if the argument may have tab completes
+	 */
+	boolean hasCompletions()
+	{
+		return false;
+	}
+
+	/**
+	 * Get the source of the tab completes, for the completion cache.
+	 *
+	 * @return the source, or null if the tab completes need no cache
+	 */
+	CmdCompletionCache.Source getCompletionSource()
+	{
+		return null;
+	}
+
+	/**
+	 * A String argument.
+	 */
+	static final class StringArgument extends CmdArgument
+	{
+		static final StringArgument INSTANCE = new StringArgument();
+
+		private StringArgument() {}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			return arg;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * An argument parsed by a serializer.
+	 */
+	static final class SerializerArgument extends CmdArgument
+	{
+		private final CommandSerializer<?> serializer;
+
+		SerializerArgument(CommandSerializer<?> serializer)
+		{
+			this.serializer = serializer;
+		}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			Object o = serializer.tryParse(arg, frame);
+			return frame.failed(arg, serializer) ? INVALID : o;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return serializer.getTabCompletes(str);
+		}
+
+		@Override
+		boolean hasCompletions()
+		{
+			return CmdSerializers.hasCompletions(serializer);
+		}
+
+		@Override
+		CmdCompletionCache.Source getCompletionSource()
+		{
+			return CmdSerializers.getCompletionSource(serializer);
+		}
+	}
+
+	/**
+	 * An argument parsed by an async serializer, resolved before the invocation.
+	 */
+	static final class AsyncArgument extends CmdArgument
+	{
+		private final AsyncCommandSerializer<?> serializer;
+
+		AsyncArgument(AsyncCommandSerializer<?> serializer)
+		{
+			this.serializer = serializer;
+		}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			Object o = serializer.tryParse(arg, frame); //Blocking
+			return frame.failed(arg, serializer) ? INVALID : o;
+		}
+
+		@Override
+		boolean read(String[] cmd, int at, CmdFrame frame, int index)
+		{
+			return await(frame.args, index, cmd[at], frame);
+		}
+
+		/**
+		 * Start the lookup of an argument, resolved into a target before the invocation.
+		 *
+		 * @param target the array receiving the resolved argument
+		 * @param index  the index of the argument in the target
+		 * @param arg    the argument
+		 * @param frame  the frame of the dispatch
+		 * @return false if the lookup cannot be started
+		 */
+		boolean await(Object[] target, int index, String arg, CmdFrame frame)
+		{
+			CompletableFuture<?> future;
+			try
+			{
+				future = serializer.serializeAsync(arg);
+			}
+			catch (RejectedExecutionException e) //The lookup executor is full
+			{
+				frame.fail(ParseFailure.message(frame.messages.getAsyncBusyMessage()));
+				frame.failed(arg, serializer);
+				return false;
+			}
+
+			frame.await(target, index, arg, serializer, future);
+			return true;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return serializer.getTabCompletes(str);
+		}
+
+		@Override
+		boolean hasCompletions()
+		{
+			return CmdSerializers.hasCompletions(serializer);
+		}
+
+		@Override
+		CmdCompletionCache.Source getCompletionSource()
+		{
+			return CmdSerializers.getCompletionSource(serializer);
+		}
+	}
+
+	/**
+	 * A primitive argument, stored without boxing.
+	 */
+	static final class PrimitiveArgument extends CmdArgument
+	{
+		private final CommandSerializer<?> serializer;
+		private final PrimitiveParser parser;
+
+		private PrimitiveArgument(CommandSerializer<?> serializer, PrimitiveParser parser)
+		{
+			this.serializer = serializer;
+			this.parser = parser;
+		}
+
+		/**
+		 * Create the slot of a primitive parameter.
+		 *
+		 * @param type       the primitive type of the parameter
+		 * @param serializer the serializer
+		 * @return the slot
+		 */
+		static PrimitiveArgument of(Class<?> type, CommandSerializer<?> serializer)
+		{
+			return new PrimitiveArgument(serializer, parser(type, serializer));
+		}
+
+		/**
+		 * Create the parser of a primitive.
+		 * The specialized serializer is used if it matches the primitive, else the serialized value is unboxed.
+		 *
+		 * @param type       the primitive type
+		 * @param serializer the serializer
+		 * @return the parser, returning the raw bits of the primitive
+		 */
+		static PrimitiveParser parser(Class<?> type, CommandSerializer<?> serializer)
+		{
+			PrimitiveParser parser;
+			if (type == int.class && serializer instanceof IntCommandSerializer)
+				parser = ((IntCommandSerializer) serializer)::tryParseInt;
+			else if (type == long.class && serializer instanceof LongCommandSerializer)
+				parser = ((LongCommandSerializer) serializer)::tryParseLong;
+			else if (type == double.class && serializer instanceof DoubleCommandSerializer)
+			{
+				DoubleCommandSerializer doubleSerializer = (DoubleCommandSerializer) serializer;
+				parser = (arg, frame) -> Double.doubleToRawLongBits(doubleSerializer.tryParseDouble(arg, frame));
+			}
+			else if (type == float.class && serializer instanceof FloatCommandSerializer)
+			{
+				FloatCommandSerializer floatSerializer = (FloatCommandSerializer) serializer;
+				parser = (arg, frame) -> Float.floatToRawIntBits(floatSerializer.tryParseFloat(arg, frame));
+			}
+			else if (type == short.class && serializer instanceof ShortCommandSerializer)
+				parser = ((ShortCommandSerializer) serializer)::tryParseShort;
+			else if (type == byte.class && serializer instanceof ByteCommandSerializer)
+				parser = ((ByteCommandSerializer) serializer)::tryParseByte;
+			else
+				parser = (arg, frame) ->
+				{
+					Object o = serializer.tryParse(arg, frame);
+					return o == null ? 0 : CmdInvoker.toBits(o);
+				};
+
+			return parser;
+		}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			Object o = serializer.tryParse(arg, frame);
+			return frame.failed(arg, serializer) ? INVALID : o;
+		}
+
+		@Override
+		boolean read(String[] cmd, int at, CmdFrame frame, int index)
+		{
+			String arg = cmd[at];
+			long bits = parser.parse(arg, frame);
+			if (frame.failed(arg, serializer))
+				return false;
+
+			frame.primitives[index] = bits;
+			return true;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return serializer.getTabCompletes(str);
+		}
+
+		@Override
+		boolean hasCompletions()
+		{
+			return CmdSerializers.hasCompletions(serializer);
+		}
+
+		@Override
+		CmdCompletionCache.Source getCompletionSource()
+		{
+			return CmdSerializers.getCompletionSource(serializer);
+		}
+
+		/**
+		 * Parse an argument into the raw bits of a primitive, without throwing exceptions.
+		 */
+		@FunctionalInterface
+		interface PrimitiveParser
+		{
+			long parse(String arg, ParseResult result);
+		}
+	}
+
+	/**
+	 * An argument from a choice list.
+	 */
+	static final class ChoiceArgument extends CmdArgument
+	{
+		private final ChoiceList<?> choice;
+
+		ChoiceArgument(ChoiceList<?> choice)
+		{
+			this.choice = choice;
+		}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			Object o = choice.get(arg);
+			if (o != null)
+				return o;
+
+			frame.suggest(choice.suggest(arg));
+			return INVALID;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return choice.complete(str);
+		}
+
+		@Override
+		boolean hasCompletions()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * The 'array as last argument' tail, reading all the remaining arguments.
+	 * <p>
+	 * The array is created and filled by a factory and an element writer chosen at registration for the component
+	 * type, so primitive arrays are filled without boxing and no reflection is used while dispatching.
+	 */
+	static final class ArrayArgument extends CmdArgument
+	{
+		private final CmdArgument element; //The slot of each element
+		private final IntFunction<Object> factory; //Create the array from its size
+		private final ElementWriter writer; //Parse an element and write it into the array
+
+		private ArrayArgument(CmdArgument element, IntFunction<Object> factory, ElementWriter writer)
+		{
+			this.element = element;
+			this.factory = factory;
+			this.writer = writer;
+		}
+
+		/**
+		 * Create the slot of an array parameter.
+		 *
+		 * @param type       the component type of the array
+		 * @param element    the slot of each element
+		 * @param serializer the serializer of each element, or null if none
+		 * @return the slot
+		 */
+		static ArrayArgument of(Class<?> type, CmdArgument element, CommandSerializer<?> serializer)
+		{
+			if (element instanceof AsyncArgument) //Each element is looked up in parallel, resolved before the invocation
+			{
+				AsyncArgument asyncElement = (AsyncArgument) element;
+				return new ArrayArgument(element, referenceFactory(type), (array, j, arg, frame) ->
+						asyncElement.await((Object[]) array, j, arg, frame));
+			}
+
+			if (!type.isPrimitive())
+				return new ArrayArgument(element, referenceFactory(type), (array, j, arg, frame) ->
+				{
+					Object o = element.parse(arg, frame);
+					if (o == INVALID)
+						return false;
+
+					((Object[]) array)[j] = o;
+					return true;
+				});
+
+			//Specialized paths for the most used primitive arrays
+			if (type == int.class && serializer instanceof IntCommandSerializer)
+			{
+				IntCommandSerializer intSerializer = (IntCommandSerializer) serializer;
+				return new ArrayArgument(element, int[]::new, (array, j, arg, frame) ->
+				{
+					int value = intSerializer.tryParseInt(arg, frame);
+					if (frame.failed(arg, intSerializer))
+						return false;
+
+					((int[]) array)[j] = value;
+					return true;
+				});
+			}
+			if (type == long.class && serializer instanceof LongCommandSerializer)
+			{
+				LongCommandSerializer longSerializer = (LongCommandSerializer) serializer;
+				return new ArrayArgument(element, long[]::new, (array, j, arg, frame) ->
+				{
+					long value = longSerializer.tryParseLong(arg, frame);
+					if (frame.failed(arg, longSerializer))
+						return false;
+
+					((long[]) array)[j] = value;
+					return true;
+				});
+			}
+			if (type == double.class && serializer instanceof DoubleCommandSerializer)
+			{
+				DoubleCommandSerializer doubleSerializer = (DoubleCommandSerializer) serializer;
+				return new ArrayArgument(element, double[]::new, (array, j, arg, frame) ->
+				{
+					double value = doubleSerializer.tryParseDouble(arg, frame);
+					if (frame.failed(arg, doubleSerializer))
+						return false;
+
+					((double[]) array)[j] = value;
+					return true;
+				});
+			}
+
+			//Other primitives go through their raw bits
+			PrimitiveArgument.PrimitiveParser parser = PrimitiveArgument.parser(type, serializer);
+			IntFunction<Object> factory;
+			PrimitiveWriter store;
+			if (type == int.class)
+			{
+				factory = int[]::new;
+				store = (array, j, bits) -> ((int[]) array)[j] = (int) bits;
+			}
+			else if (type == long.class)
+			{
+				factory = long[]::new;
+				store = (array, j, bits) -> ((long[]) array)[j] = bits;
+			}
+			else if (type == double.class)
+			{
+				factory = double[]::new;
+				store = (array, j, bits) -> ((double[]) array)[j] = Double.longBitsToDouble(bits);
+			}
+			else if (type == float.class)
+			{
+				factory = float[]::new;
+				store = (array, j, bits) -> ((float[]) array)[j] = Float.intBitsToFloat((int) bits);
+			}
+			else if (type == short.class)
+			{
+				factory = short[]::new;
+				store = (array, j, bits) -> ((short[]) array)[j] = (short) bits;
+			}
+			else if (type == byte.class)
+			{
+				factory = byte[]::new;
+				store = (array, j, bits) -> ((byte[]) array)[j] = (byte) bits;
+			}
+			else if (type == char.class)
+			{
+				factory = char[]::new;
+				store = (array, j, bits) -> ((char[]) array)[j] = (char) bits;
+			}
+			else
+			{
+				factory = boolean[]::new;
+				store = (array, j, bits) -> ((boolean[]) array)[j] = (bits & 1) != 0;
+			}
+
+			return new ArrayArgument(element, factory, (array, j, arg, frame) ->
+			{
+				long bits = parser.parse(arg, frame);
+				if (frame.failed(arg, serializer))
+					return false;
+
+				store.write(array, j, bits);
+				return true;
+			});
+		}
+
+		/**
+		 * Create the factory of an array of references.
+		 *
+		 * @param type the component type of the array
+		 * @return the factory
+		 */
+		private static IntFunction<Object> referenceFactory(Class<?> type)
+		{
+			if (type == String.class)
+				return String[]::new;
+
+			Object[] empty = (Object[]) Array.newInstance(type, 0); //Typed prototype, created once
+			return size -> Arrays.copyOf(empty, size);
+		}
+
+		@Override
+		Object parse(String arg, CmdFrame frame)
+		{
+			return element.parse(arg, frame);
+		}
+
+		@Override
+		boolean read(String[] cmd, int at, CmdFrame frame, int index)
+		{
+			int size = cmd.length - at;
+			Object array = factory.apply(size);
+
+			for (int j = 0; j < size; j++)
+				if (!writer.write(array, j, cmd[at + j], frame))
+					return false;
+
+			frame.args[index] = array;
+			return true;
+		}
+
+		@Override
+		List<String> completeTab(String str)
+		{
+			return element.completeTab(str);
+		}
+
+		@Override
+		boolean hasCompletions()
+		{
+			return element.hasCompletions();
+		}
+
+		@Override
+		CmdCompletionCache.Source getCompletionSource()
+		{
+			return element.getCompletionSource();
+		}
+
+		/**
+		 * Parse an element and write it into the array.
+		 */
+		@FunctionalInterface
+		private interface ElementWriter
+		{
+			boolean write(Object array, int j, String arg, CmdFrame frame);
+		}
+
+		/**
+		 * Write the raw bits of a primitive into the array.
+		 */
+		@FunctionalInterface
+		private interface PrimitiveWriter
+		{
+			void write(Object array, int j, long bits);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * 'Static' class running the @Async commands off the server thread.
+ */
+final class CmdAsync
+{
+	private static final int THREADS = 4; //The maximum number of commands running at the same time
+	private static final int QUEUE_SIZE = 64; //The maximum number of commands waiting for a thread
+	private static final long KEEP_ALIVE = 60; //The time in seconds after which an idle thread is stopped
+
+	private static ThreadPoolExecutor executor; //The executor of the commands
+	private static ScheduledExecutorService timeouts; //The scheduler of the timeouts
+
+	private CmdAsync() {}
+
+	/**
+	 * Start the executors.
+	 */
+	static void start()
+	{
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(QUEUE_SIZE),
+				runnable -> daemon(runnable, "CommandCreator Async #" + count.incrementAndGet()));
+		executor.allowCoreThreadTimeOut(true);
+
+		timeouts = Executors.newSingleThreadScheduledExecutor(
+				runnable -> daemon(runnable, "CommandCreator Timeout"));
+	}
+
+	/**
+	 * Create a daemon thread.
+	 *
+	 * @param runnable the task of the thread
+	 * @param name     the name of the thread
+	 * @return the thread
+	 */
+	private static Thread daemon(Runnable runnable, String name)
+	{
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Stop the executors, interrupting the running commands.
+	 */
+	static void stop()
+	{
+		if (executor == null)
+			return;
+
+		executor.shutdownNow();
+		timeouts.shutdownNow();
+	}
+
+	/**
+	 * Get the executor of the commands, also running the blocking lookups of the async serializers.
+	 * Tasks are rejected when too many are waiting.
+	 *
+	 * @return the executor
+	 */
+	static Executor getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * Run a command method on the executor.
+	 * The sender is told if too many commands are already waiting.
+	 *
+	 * @param invoker    the invoker of the method
+	 * @param args       the arguments of the method, sender first
+	 * @param primitives the raw bits of the primitive arguments
+	 * @param sender     the sender of the command
+	 * @param label      the label of the command, for the logs
+	 * @param timeout    the time in milliseconds after which the command is cancelled, or 0 for no timeout
+	 */
+	static void run(CmdInvoker invoker, Object[] args, long[] primitives, CommandSender sender, String label,
+	                long timeout)
+	{
+		Future<?> future;
+		try
+		{
+			future = executor.submit(() -> invoke(invoker, args, primitives, label));
+		}
+		catch (RejectedExecutionException e)
+		{
+			sender.sendMessage(CmdConfig.getMessages(sender).getAsyncBusyMessage());
+			return;
+		}
+
+		if (timeout > 0)
+			timeouts.schedule(() -> cancel(future, sender, label, timeout), timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Wait for the async arguments of a frame, then call back on the server thread.
+	 *
+	 * @param frame    the frame of the dispatch
+	 * @param callback the callback
+	 */
+	static void await(CmdFrame frame, Runnable callback)
+	{
+		frame.awaitAll().thenRun(() -> Bukkit.getScheduler().runTask(Main.getInstance(), callback));
+	}
+
+	/**
+	 * Invoke the method, then hand its completion hook over to the server thread.
+	 *
+	 * @param invoker    the invoker of the method
+	 * @param args       the arguments of the method, sender first
+	 * @param primitives the raw bits of the primitive arguments
+	 * @param label      the label of the command, for the logs
+	 */
+	private static void invoke(CmdInvoker invoker, Object[] args, long[] primitives, String label)
+	{
+		try
+		{
+			Runnable hook = invoker.invokeWithHook(args, primitives);
+			if (hook != null && !Thread.currentThread().isInterrupted()) //Cancelled commands do not complete
+				Bukkit.getScheduler().runTask(Main.getInstance(), hook);
+		}
+		catch (InvocationTargetException e)
+		{
+			Main.getInstance().getLogger().log(Level.SEVERE, "Error while dispatching command " + label,
+					e.getCause());
+		}
+	}
+
+	/**
+	 * Cancel a command which took too long.
+	 *
+	 * @param future  the future of the command
+	 * @param sender  the sender of the command
+	 * @param label   the label of the command, for the logs
+	 * @param timeout the timeout of the command
+	 */
+	private static void cancel(Future<?> future, CommandSender sender, String label, long timeout)
+	{
+		if (!future.cancel(true)) //Already done
+			return;
+
+		Main.getInstance().getLogger().warning("Command " + label + " of " + sender.getName()
+				+ " was cancelled after " + timeout + "ms");
+		Bukkit.getScheduler().runTask(Main.getInstance(),
+				() -> sender.sendMessage(CmdConfig.getMessages(sender).getAsyncTimeoutMessage()));
+	}
+}
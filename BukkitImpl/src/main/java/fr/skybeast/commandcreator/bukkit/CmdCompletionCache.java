@@ -0,0 +1,169 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 'Static' class caching the tab completes of the argument slots, by command node, argument index and prefix.
+ * <p>
+ * Entries expire after a delay, and all the entries of a source are invalidated at once when it changes.
+ * Concurrent requests for the same key share one computation.
+ */
+final class CmdCompletionCache
+{
+	private static final int MAX_SIZE = 4096; //The maximum number of entries
+	private static final long EXPIRY = TimeUnit.SECONDS.toNanos(10); //The time after which an entry expires
+
+	private static final Map<Key, Entry> CACHE = new ConcurrentHashMap<>();
+	private static final AtomicLongArray GENERATIONS =
+			new AtomicLongArray(Source.values().length); //The generation of each source, increased on each change
+
+	private CmdCompletionCache() {}
+
+	/**
+	 * The sources of tab completes, invalidated independently.
+	 */
+	enum Source
+	{
+		PLAYERS, //The players
+		SERIALIZERS //The custom serializers
+	}
+
+	/**
+	 * Get the cached tab completes of an argument, or compute them.
+	 *
+	 * @param node     the command node
+	 * @param index    the index of the argument
+	 * @param prefix   the argument being typed
+	 * @param source   the source of the tab completes
+	 * @param complete compute the tab completes
+	 * @return the tab completes
+	 */
+	static List<String> get(Object node, int index, String prefix, Source source,
+	                        Supplier<List<String>> complete)
+	{
+		Key key = new Key(node, index, prefix);
+		long generation = GENERATIONS.get(source.ordinal());
+
+		while (true)
+		{
+			long now = System.nanoTime();
+			Entry entry = CACHE.get(key);
+			if (entry != null && entry.generation == generation && now - entry.created < EXPIRY)
+				return entry.future.join(); //Wait for the computation of another request, if any
+
+			Entry fresh = new Entry(now, generation);
+			boolean owner = entry == null ? CACHE.putIfAbsent(key, fresh) == null : CACHE.replace(key, entry, fresh);
+			if (!owner) //Another request started a computation: retry to share it
+				continue;
+
+			if (CACHE.size() > MAX_SIZE)
+				evict(now);
+
+			try
+			{
+				List<String> tabCompletes = complete.get();
+				fresh.future.complete(tabCompletes);
+				return tabCompletes;
+			}
+			catch (RuntimeException e)
+			{
+				CACHE.remove(key, fresh);
+				fresh.future.completeExceptionally(e);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Remove the expired entries, then enough entries to make room if still full.
+	 *
+	 * @param now the current time, in nanoseconds
+	 */
+	private static void evict(long now)
+	{
+		CACHE.values().removeIf(entry -> now - entry.created >= EXPIRY);
+
+		Iterator<Entry> it = CACHE.values().iterator();
+		while (CACHE.size() > MAX_SIZE * 3 / 4 && it.hasNext())
+		{
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Invalidate the tab completes of a source.
+	 *
+	 * @param source the source which changed
+	 */
+	static void invalidate(Source source)
+	{
+		GENERATIONS.incrementAndGet(source.ordinal());
+	}
+
+	/**
+	 * Remove all the entries, when the commands change.
+	 */
+	static void clear()
+	{
+		CACHE.clear();
+	}
+
+	/**
+	 * The key of an entry.
+	 */
+	private static final class Key
+	{
+		private final Object node; //The command node
+		private final int index; //The index of the argument
+		private final String prefix; //The argument being typed
+
+		Key(Object node, int index, String prefix)
+		{
+			this.node = node;
+			this.index = index;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+
+			Key key = (Key) o;
+			return node == key.node && index == key.index && prefix.equals(key.prefix);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(node) * 31 + index) * 31 + prefix.hashCode();
+		}
+	}
+
+	/**
+	 * An entry of the cache.
+	 */
+	private static final class Entry
+	{
+		private final CompletableFuture<List<String>> future = new CompletableFuture<>(); //The tab completes
+		private final long created; //The time of creation, in nanoseconds
+		private final long generation; //The generation of the source at the time of creation
+
+		Entry(long created, long generation)
+		{
+			this.created = created;
+			this.generation = generation;
+		}
+	}
+}
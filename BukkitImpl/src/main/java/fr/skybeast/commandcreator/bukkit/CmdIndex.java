@@ -0,0 +1,92 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import fr.skybeast.commandcreator.ChoiceList;
+import fr.skybeast.commandcreator.CompletionRange;
+
+import java.util.*;
+
+/**
+ * An immutable index of the sub commands of a compound.
+ * <p>
+ * Labels and aliases are kept in sorted choice lists: resolving a name is a binary search, and the labels starting
+ * with a prefix are returned as a view already sorted.
+ */
+final class CmdIndex
+{
+	private final ChoiceList<Cmd> names; //The commands by label and alias
+	private final ChoiceList<Cmd> labels; //The commands by label, for the tab completion
+
+	/**
+	 * Index the commands by their labels and aliases.
+	 * Labels have precedence over aliases.
+	 *
+	 * @param cmds the commands
+	 */
+	CmdIndex(Collection<Cmd> cmds)
+	{
+		Map<String, Cmd> byLabel = new HashMap<>();
+		for (Cmd cmd : cmds)
+			byLabel.put(cmd.getLabel(), cmd);
+
+		Map<String, Cmd> byName = new HashMap<>();
+		for (Cmd cmd : cmds)
+			for (String alias : cmd.getAliases())
+				byName.put(alias, cmd);
+		byName.putAll(byLabel);
+
+		names = new ChoiceList<>(byName);
+		labels = new ChoiceList<>(byLabel);
+	}
+
+	/**
+	 * Get a command from its label or one of its aliases.
+	 *
+	 * @param name the label or alias
+	 * @return the command, or null if not found
+	 */
+	Cmd get(String name)
+	{
+		return names.get(name);
+	}
+
+	/**
+	 * Get the closest label or alias of a mistyped name.
+	 *
+	 * @param name the mistyped name
+	 * @return the closest label or alias, or null if none is close enough
+	 */
+	String suggest(String name)
+	{
+		return names.suggest(name);
+	}
+
+	/**
+	 * Get the sorted labels starting with a prefix, of the commands visible to a sender.
+	 *
+	 * @param prefix     the prefix
+	 * @param visibility the visibility bitmap of the commands, see {@link CmdPermissions#visibility}
+	 * @return the unmodifiable view of the labels if all are visible, a new list otherwise
+	 */
+	List<String> complete(String prefix, long[] visibility)
+	{
+		CompletionRange range = labels.complete(prefix);
+		if (visibility == CmdPermissions.ALL_VISIBLE)
+			return range;
+
+		List<String> visible = new ArrayList<>(range.size());
+		for (int i = 0; i < range.size(); i++)
+			if (CmdPermissions.isVisible(visibility, range.getOffset() + i))
+				visible.add(range.get(i));
+		return visible;
+	}
+
+	/**
+	 * Get the commands, sorted by label.
+	 *
+	 * @return the unmodifiable list of the commands
+	 */
+	List<Cmd> getCommands()
+	{
+		return labels.getValues();
+	}
+}
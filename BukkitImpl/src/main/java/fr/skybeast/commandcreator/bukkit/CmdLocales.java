@@ -0,0 +1,94 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the rendering of each online player, from its locale.
+ * <p>
+ * A cached rendering is used as long as the locale of the player and the localization are the same.
+ */
+final class CmdLocales implements Listener
+{
+	private static final Map<UUID, Cached> CACHE = new ConcurrentHashMap<>();
+
+	private CmdLocales() {}
+
+	/**
+	 * Listen to quits, to forget the players.
+	 *
+	 * @param plugin the plugin
+	 */
+	static void start(Plugin plugin)
+	{
+		Bukkit.getPluginManager().registerEvents(new CmdLocales(), plugin);
+	}
+
+	/**
+	 * Get the rendering of a sender, in its locale.
+	 *
+	 * @param sender       the sender
+	 * @param localization the current localization
+	 * @return the rendering
+	 */
+	static CmdRendering get(CommandSender sender, CmdLocalization localization)
+	{
+		if (!(sender instanceof Player)) //The console uses messages.yml
+			return localization.getDefaults();
+
+		Player player = (Player) sender;
+		String locale = player.spigot().getLocale();
+		if (locale == null) //Not sent by the client yet
+			return localization.getDefaults();
+
+		Cached cached = CACHE.get(player.getUniqueId());
+		if (cached != null && cached.localization == localization && cached.locale.equals(locale))
+			return cached.rendering;
+
+		CmdRendering rendering = localization.get(locale);
+		if (player.isOnline())
+			CACHE.put(player.getUniqueId(), new Cached(localization, locale, rendering));
+		return rendering;
+	}
+
+	/**
+	 * Forget the renderings of every player, when they may hold commands no longer registered.
+	 */
+	static void clear()
+	{
+		CACHE.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event)
+	{
+		CACHE.remove(event.getPlayer().getUniqueId());
+	}
+
+	/**
+	 * The rendering of a player.
+	 */
+	private static final class Cached
+	{
+		private final CmdLocalization localization; //The localization the rendering was resolved from
+		private final String locale; //The locale of the player
+		private final CmdRendering rendering; //The rendering of the locale
+
+		Cached(CmdLocalization localization, String locale, CmdRendering rendering)
+		{
+			this.localization = localization;
+			this.locale = locale;
+			this.rendering = rendering;
+		}
+	}
+}
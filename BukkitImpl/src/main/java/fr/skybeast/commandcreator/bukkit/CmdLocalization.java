@@ -0,0 +1,154 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable snapshot of the renderings of every locale.
+ * <p>
+ * The fallbacks of the locales are resolved when the config is loaded: the messages of {@code messages_de_at.yml}
+ * already fall back to {@code messages_de.yml}, then to {@code messages.yml}. The rendering of a locale without file
+ * is resolved once, on its first use.
+ */
+final class CmdLocalization
+{
+	private static final int MAX_RESOLVED = 256; //The maximum number of locales of senders remembered
+
+	@Getter
+	private final CmdRendering defaults; //The rendering of messages.yml
+	private final Map<String, CmdRendering> renderings; //The renderings of the locale files, by locale
+	private final Map<String, CmdRendering> resolved = new ConcurrentHashMap<>(); //The renderings, by sender locale
+
+	private CmdLocalization(CmdRendering defaults, Map<String, CmdRendering> renderings)
+	{
+		this.defaults = defaults;
+		this.renderings = renderings;
+	}
+
+	/**
+	 * Create a snapshot with no command registered.
+	 *
+	 * @param defaults the messages of messages.yml
+	 * @param locales  the messages of the locale files, by lower case locale
+	 * @return the snapshot
+	 */
+	static CmdLocalization of(CmdMessages defaults, Map<String, CmdMessages> locales)
+	{
+		return render(new CmdRendering(defaults), locales);
+	}
+
+	/**
+	 * Render the registered commands from new messages.
+	 *
+	 * @param defaults the messages of messages.yml
+	 * @param locales  the messages of the locale files, by lower case locale
+	 * @return the new snapshot
+	 */
+	CmdLocalization withMessages(CmdMessages defaults, Map<String, CmdMessages> locales)
+	{
+		return render(this.defaults.withMessages(defaults), locales);
+	}
+
+	/**
+	 * Render the locales with the commands of the default rendering.
+	 *
+	 * @param defaults the rendering of messages.yml
+	 * @param locales  the messages of the locale files, by lower case locale
+	 * @return the snapshot
+	 */
+	private static CmdLocalization render(CmdRendering defaults, Map<String, CmdMessages> locales)
+	{
+		Map<String, CmdRendering> renderings = new HashMap<>();
+		locales.forEach((locale, messages) -> renderings.put(locale, defaults.withMessages(messages)));
+		return new CmdLocalization(defaults, renderings);
+	}
+
+	/**
+	 * Render a newly registered command in every locale.
+	 *
+	 * @param root the root command
+	 * @return the new snapshot
+	 */
+	CmdLocalization withRoot(Cmd root)
+	{
+		Map<String, CmdRendering> renderings = new HashMap<>();
+		this.renderings.forEach((locale, rendering) -> renderings.put(locale, rendering.withRoot(root)));
+		return new CmdLocalization(defaults.withRoot(root), renderings);
+	}
+
+	/**
+	 * Render the commands left after an unregistration in every locale.
+	 *
+	 * @param removed the unregistered root commands
+	 * @return the new snapshot
+	 */
+	CmdLocalization withoutRoots(Collection<Cmd> removed)
+	{
+		Map<String, CmdRendering> renderings = new HashMap<>();
+		this.renderings.forEach((locale, rendering) -> renderings.put(locale, rendering.withoutRoots(removed)));
+		return new CmdLocalization(defaults.withoutRoots(removed), renderings);
+	}
+
+	/**
+	 * Get the rendering of a locale, falling back to the closest locale with a file.
+	 *
+	 * @param locale the locale, such as {@code en_US}
+	 * @return the rendering
+	 */
+	CmdRendering get(String locale)
+	{
+		CmdRendering rendering = resolved.get(locale);
+		if (rendering != null)
+			return rendering;
+
+		rendering = resolve(locale);
+		if (resolved.size() < MAX_RESOLVED) //The locale is sent by the client, it may be anything
+			resolved.put(locale, rendering);
+		return rendering;
+	}
+
+	/**
+	 * Resolve the rendering of a locale.
+	 *
+	 * @param locale the locale
+	 * @return the rendering
+	 */
+	private CmdRendering resolve(String locale)
+	{
+		for (String l = normalize(locale); l != null; l = parent(l))
+		{
+			CmdRendering rendering = renderings.get(l);
+			if (rendering != null)
+				return rendering;
+		}
+		return defaults;
+	}
+
+	/**
+	 * Normalize a locale.
+	 *
+	 * @param locale the locale, such as {@code en-US}
+	 * @return the lower case locale, such as {@code en_us}
+	 */
+	static String normalize(String locale)
+	{
+		return locale.replace('-', '_').toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Get the parent of a locale.
+	 *
+	 * @param locale the normalized locale, such as {@code de_at}
+	 * @return the parent, such as {@code de}, or null if none
+	 */
+	static String parent(String locale)
+	{
+		int i = locale.lastIndexOf('_');
+		return i <= 0 ? null : locale.substring(0, i);
+	}
+}
@@ -1,26 +1,27 @@
 package fr.skybeast.commandcreator.bukkit;
 
 import fr.skybeast.commandcreator.*;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-import lombok.Getter;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.ArrayArgument;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.AsyncArgument;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.ChoiceArgument;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.PrimitiveArgument;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.SerializerArgument;
+import fr.skybeast.commandcreator.bukkit.CmdArgument.StringArgument;
+import lombok.AllArgsConstructor;
 import lombok.ToString;
 import org.bukkit.command.CommandSender;
 
-import java.lang.reflect.Array;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Parameter;
-import java.util.ArrayList;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 
 /**
- * A command wrapped on a method.
+ * A command wrapped on a method, built from its plan.
  * <p>
- * Almost everything is cached in the field, so less cpu-intensive. (Reflection is slow)
+ * Almost everything is cached in the field, so less cpu-intensive.
  */
 @ToString
 final class CmdMethod extends Cmd
@@ -28,27 +29,18 @@ final class CmdMethod extends Cmd
 	/*
 	 * Parameters
 	 */
-	private final Method method; //The backing method
+	private final CommandPlan plan; //The plan of the method
+	private final CmdInvoker invoker; //The invoker of the method
 	private final int parametersCount; //The number of parameters
 	private int optStart = -1; //At which argument starts optionals? -- -1 if never
-	private CmdSenderType senderType; //The sender type allowed
-	private TIntObjectMap<CommandSerializer> serializers; //All the serializers; key = parameter number
-	private TIntObjectMap<Map<String, Object>> choiceLists; //All the choice lists; key = parameter number
-
-	/*
-	 * Array -- Only if last argument is array
-	 */
-	private Class<?> arrayType; //The array type
-	private CommandSerializer<?> arraySerializer; //The array serializer
-	private Map<String, Object> arrayChoice; //The array choice list
-
-	/*
-	 * Messages
-	 */
-	@Getter
-	private String[] parametersUsage; //All the usages of the parameters
-	@Getter
-	private String simpleUsage; //The usages of this command
+	private Predicate<CommandSender> senderCheck; //The check of the senders allowed
+	private final CmdArgument[] arguments; //The compiled argument slots; key = parameter number
+	private final CmdRanking[] rankings; //The popularity of the values of each argument; key = parameter number
+	private final boolean[] ranked; //Are the values of each argument counted? -- Only if tab-completed
+	private final int[] maxTabCompletes; //The maximum number of tab completes, -1 for the configured maximum
+	private final ParameterUsage[] parameterUsages; //What the usages are rendered from; key = parameter number
+	private boolean array; //Is last argument an array?
+	private boolean primitive; //Has primitive parameters? -- They are passed without boxing
 
 	/* --------------------- */
 	/* ---- FIELD SETUP ---- */
@@ -57,92 +49,59 @@ final class CmdMethod extends Cmd
 	/**
 	 * Create a new CmdMethod
 	 *
-	 * @param method     the method to wrap
-	 * @param annotation the annotation of the command
-	 * @throws ReflectiveOperationException reflection-related method
+	 * @param plan    the plan of the method
+	 * @param invoker the invoker of the method
+	 * @throws ReflectiveOperationException if a custom serializer cannot be created
 	 */
-	CmdMethod(Method method, Command annotation)
+	CmdMethod(CommandPlan plan, CmdInvoker invoker)
 			throws ReflectiveOperationException
 	{
-		super(annotation, method.getName()); //Call papa
-
-		this.method = method;
+		super(plan); //Call papa
 
-		validateStatic();
-		validateReturnType();
+		this.plan = plan;
+		this.invoker = invoker;
 
-		Parameter[] parameters = method.getParameters();
-		parametersCount = parameters.length - 1;
+		parametersCount = plan.getParameters().length;
+		arguments = new CmdArgument[parametersCount];
+		rankings = new CmdRanking[parametersCount];
+		ranked = new boolean[parametersCount];
+		maxTabCompletes = new int[parametersCount];
+		parameterUsages = new ParameterUsage[parametersCount];
 		setupSenderType();
 		iterate();
 	}
 
-	/**
-	 * Throw error if method is not static.
-	 */
-	private void validateStatic()
-	{
-		if (!isStatic(method.getModifiers()))
-			throw new CommandCreationException(method + " must be static to be a command");
-	}
-
-	/**
-	 * Throw error if invalid return type is found.
-	 */
-	private void validateReturnType()
-	{
-		Class<?> returnType = method.getReturnType();
-		if (returnType != void.class && returnType != boolean.class)
-			throw new CommandCreationException(method + " cannot return " + returnType);
-	}
-
 	/**
 	 * Iterate over all the parameters
 	 *
-	 * @throws ReflectiveOperationException reflection-related method
+	 * @throws ReflectiveOperationException if a custom serializer cannot be created
 	 */
 	private void iterate()
 			throws ReflectiveOperationException
 	{
-		Parameter[] parameters = method.getParameters();
-
-		StringBuilder simpleUsage = new StringBuilder(label)
-				.append(' '); //Used for simple usage message
-		List<String> parametersUsage = new ArrayList<>(); //Used for parameters usage message
+		CommandPlan.Parameter[] parameters = plan.getParameters(); //The sender is not part of them
 
 		boolean isOptionalDone = false; //Used to know if optional already started
-		for (int i = 0; i < parameters.length - 1; i++)
+		for (int i = 0; i < parameters.length; i++)
 		{
-			Parameter param = parameters[i + 1]; //Don't use first parameter -- sender type
+			CommandPlan.Parameter param = parameters[i];
 			Class<?> type = param.getType();
 
 
 			//-- Serialization handling
-			Serial serAnnotation = param.getAnnotation(Serial.class);
-			String valueType = registerSerializer(serAnnotation, i, type, parameters.length - 1);
-
-
-			//-- Arg annotation handling
-			Arg argAnnotation = param.getAnnotation(Arg.class);
+			Function<CmdMessages, String> valueType = registerSerializer(param.getSerializer(), i, type,
+					parameters.length);
 
-			//Get fields from annotation or default
-			String argType = getArgAnnotationValue(argAnnotation, Arg::type, valueType);
-			String argName = getArgAnnotationValue(argAnnotation, Arg::value, param.getName());
-
-			StringBuilder paramUsageBuilder = new StringBuilder(argName)
-					.append(": ")
-					.append(argType);
 
-			//If has description, append it
-			if (argAnnotation != null && !argAnnotation.desc().isEmpty())
-				paramUsageBuilder.append(CmdConfig.getDescriptionSeparator())
-						.append(argAnnotation.desc());
+			//-- Arg handling
+			String argType = param.getValueType();
+			rankings[i] = new CmdRanking();
+			ranked[i] = arguments[i].hasCompletions(); //Free-form values would only take the place of real ones
+			maxTabCompletes[i] = param.getMaxTabCompletes();
 
 
 			//-- Optional handling
-			Opt optAnnotation = param.getAnnotation(Opt.class);
-
-			boolean paramHasOptional = optAnnotation != null;
+			boolean paramHasOptional = param.isOptional();
 			if (paramHasOptional)
 			{
 				if (!isOptionalDone)
@@ -153,9 +112,6 @@ final class CmdMethod extends Cmd
 
 				if (type.isPrimitive()) //Primitives are not nullable, so cannot be optionals
 					throw new CommandCreationException("Optional value(s) cannot be primitives");
-
-				paramUsageBuilder.append(' ')
-						.append(CmdConfig.getOptional());
 			}
 			else
 			{
@@ -163,94 +119,67 @@ final class CmdMethod extends Cmd
 					throw new CommandCreationException("Optional value(s) must be last value(s)");
 			}
 
-			simpleUsage.append(
-					String.format(CmdConfig.getMessage(paramHasOptional ? "simpleUsageOptional" :
-							"simpleUsageRequired"), argName));
-
-			//Prepare for next iteration
-			simpleUsage.append(' ');
-			parametersUsage.add(paramUsageBuilder.toString());
+			parameterUsages[i] = new ParameterUsage(param.getName(), argType == null ? valueType :
+					messages -> argType, param.getDescription(), paramHasOptional);
 		}
-
-		this.simpleUsage = simpleUsage.toString();
-		this.parametersUsage = parametersUsage.toArray(new String[parametersUsage.size()]);
 	}
 
 	/**
-	 * Get a value from the annotation, or the default value if the annotation is null, or if the value the empty
-	 * string.
+	 * Register the argument slot of a parameter.
 	 *
-	 * @param annotation   The Arg annotation
-	 * @param fn           the function which takes the argument to return its value
-	 * @param defaultValue the default value
-	 * @return the final value
+	 * @param serial the class of the custom serializer, or null if none
+	 * @param i      the index of the parameter
+	 * @param type   the type of the parameter
+	 * @param max    the max index of the parameter
+	 * @return the string representation of the serializer, rendered from the messages
+	 * @throws ReflectiveOperationException if the custom serializer cannot be created
 	 */
-	private String getArgAnnotationValue(Arg annotation, Function<Arg, String> fn, String defaultValue)
-	{
-		return annotation == null ? defaultValue : getFirstOrDefault(fn.apply(annotation), defaultValue);
-	}
-
-	/**
-	 * Get first parameter if not empty, else default.
-	 *
-	 * @param first        the first parameter
-	 * @param defaultValue the default value
-	 * @return the final value
-	 */
-	private String getFirstOrDefault(String first, String defaultValue)
-	{
-		return first.isEmpty() ? defaultValue : first;
-	}
-
-	/**
-	 * Register a serializer.
-	 *
-	 * @param serAnnotation the serializer annotation if present
-	 * @param i             the index of the parameter
-	 * @param type          the type of the parameter
-	 * @param max           the max index of the parameter
-	 * @return the string representation of the serializer
-	 * @throws ReflectiveOperationException reflection-related method
-	 */
-	private String registerSerializer(Serial serAnnotation, int i, Class<?> type, int max)
+	private Function<CmdMessages, String> registerSerializer(Class<? extends CommandSerializer> serial, int i,
+	                                                         Class<?> type, int max)
 			throws ReflectiveOperationException
 	{
 		//-- Array handling
 		if (i == max - 1 && type.isArray())
 		{
-			arrayType = type.getComponentType();
+			array = true;
+			Class<?> arrayType = type.getComponentType();
 
 			//The array has a Serialize annotation
-			if (serAnnotation != null)
+			if (serial != null)
 			{
-				arraySerializer = CmdSerializers.serializerOf(arrayType, serAnnotation.value());
+				CommandSerializer<?> arraySerializer = CmdSerializers.serializerOf(arrayType, serial);
+				arguments[i] = ArrayArgument.of(arrayType, elementArgument(arrayType, arraySerializer),
+						arraySerializer);
 
-				return valueTypeOfSerializer(arraySerializer, arrayType) + CmdConfig.getCompoundSuffix();
+				return arrayOf(valueTypeOfSerializer(arraySerializer, arrayType));
 			}
 			//The array is a ChoiceList array
 			else if (arrayType.isEnum())
 			{
-				arrayChoice = CmdChoiceLists.getFromEnum(arrayType);
+				ChoiceList<?> arrayChoice = CmdChoiceLists.getFromEnum(arrayType);
+				arguments[i] = ArrayArgument.of(arrayType, new ChoiceArgument(arrayChoice), null);
 
-				return arrayChoice.keySet().stream().collect(
-						Collectors.joining(CmdConfig.getSeparator())) + CmdConfig.getCompoundSuffix();
+				List<String> labels = arrayChoice.getLabels();
+				return messages -> String.join(messages.getSeparator(), labels) + messages.getCompoundSuffix();
 			}
 
-			CommandSerializer componentSerializer = CmdSerializers.getSerializer(type);
+			CommandSerializer<?> arraySerializer = CmdSerializers.getSerializer(arrayType);
+			if (arraySerializer == null && arrayType != String.class)
+				throw new CommandCreationException("Don't know how to serialize " + arrayType);
+
 			//The array needs default serializing
-			if (componentSerializer != null)
-				arraySerializer = componentSerializer;
+			arguments[i] = ArrayArgument.of(arrayType, arraySerializer == null ? StringArgument.INSTANCE :
+					elementArgument(arrayType, arraySerializer), arraySerializer);
 
 			//The array is a String array
-			return valueTypeOfSerializer(arraySerializer, arrayType) + CmdConfig.getCompoundSuffix();
+			return arrayOf(valueTypeOfSerializer(arraySerializer, arrayType));
 		}
 
 		//-- Serialize annotation handling
-		if (serAnnotation != null)
+		if (serial != null)
 		{
-			initSerializers();
-			CommandSerializer<?> serializer = CmdSerializers.serializerOf(type, serAnnotation.value());
-			serializers.put(i, serializer);
+			CommandSerializer<?> serializer = CmdSerializers.serializerOf(type, serial);
+			arguments[i] = serializerArgument(type, serializer);
 
 			return valueTypeOfSerializer(serializer, type);
 		}
@@ -259,18 +188,17 @@ final class CmdMethod extends Cmd
 			//-- ChoiceList handling
 			if (type.isEnum())
 			{
-				initChoiceLists();
-				choiceLists.put(i, CmdChoiceLists.getFromEnum(type));
+				arguments[i] = new ChoiceArgument(CmdChoiceLists.getFromEnum(type));
 
-				return type.getSimpleName();
+				String name = type.getSimpleName();
+				return messages -> name;
 			}
 
 			CommandSerializer serializer = CmdSerializers.getSerializer(type);
 			//-- Default serialization
 			if (serializer != null)
 			{
-				initSerializers();
-				serializers.put(i, serializer);
+				arguments[i] = serializerArgument(type, serializer);
 
 				return valueTypeOfSerializer(serializer, type);
 			}
@@ -278,7 +206,42 @@ final class CmdMethod extends Cmd
 			throw new CommandCreationException("Don't know how to serialize " + type);
 		}
 
-		return CmdConfig.getStringSerializer();
+		arguments[i] = StringArgument.INSTANCE;
+		return CmdMessages::getStringSerializer;
+	}
+
+	/**
+	 * Create the slot of a serialized parameter.
+	 *
+	 * @param type       the type of the parameter
+	 * @param serializer the serializer
+	 * @return the slot
+	 */
+	private CmdArgument serializerArgument(Class<?> type, CommandSerializer<?> serializer)
+	{
+		if (serializer instanceof AsyncCommandSerializer && !type.isPrimitive())
+			return new AsyncArgument((AsyncCommandSerializer<?>) serializer);
+
+		if (!type.isPrimitive())
+			return new SerializerArgument(serializer);
+
+		primitive = true;
+		return PrimitiveArgument.of(type, serializer);
+	}
+
+	/**
+	 * Create the slot of each element of an array parameter.
+	 *
+	 * @param type       the component type of the array
+	 * @param serializer the serializer of the elements
+	 * @return the slot
+	 */
+	private static CmdArgument elementArgument(Class<?> type, CommandSerializer<?> serializer)
+	{
+		if (serializer instanceof AsyncCommandSerializer && !type.isPrimitive())
+			return new AsyncArgument((AsyncCommandSerializer<?>) serializer);
+
+		return new SerializerArgument(serializer);
 	}
 
 	/**
@@ -286,62 +249,101 @@ final class CmdMethod extends Cmd
 	 *
 	 * @param serializer the serializer or null
 	 * @param clazz      the clazz of the parameter
-	 * @return the value type
+	 * @return the value type, rendered from the messages
 	 */
-	private String valueTypeOfSerializer(CommandSerializer<?> serializer, Class<?> clazz)
+	private Function<CmdMessages, String> valueTypeOfSerializer(CommandSerializer<?> serializer, Class<?> clazz)
 	{
 		if (serializer == null)
-			return CmdConfig.getStringSerializer();
+			return CmdMessages::getStringSerializer;
+
+		String key = CmdSerializers.getNameKey(serializer);
+		if (key != null) //Default serializer: named by the messages rendered
+			return messages -> messages.getSerializerName(key);
 
 		String valueType = serializer.valueType();
 		if(valueType == null)
 			throw new CommandCreationException("Cannot have a null valueType!");
-		return valueType.isEmpty() ? clazz.getSimpleName() : valueType;
+
+		String name = valueType.isEmpty() ? clazz.getSimpleName() : valueType;
+		return messages -> name;
 	}
 
 	/**
-	 * Lazy-create the serializer map.
+	 * Return the value type of an array.
+	 *
+	 * @param valueType the value type of the elements, rendered from the messages
+	 * @return the value type, rendered from the messages
 	 */
-	private void initSerializers()
+	private static Function<CmdMessages, String> arrayOf(Function<CmdMessages, String> valueType)
 	{
-		if (serializers == null)
-			serializers = new TIntObjectHashMap<>();
+		return messages -> valueType.apply(messages) + messages.getCompoundSuffix();
 	}
 
 	/**
-	 * Lazy-create the choice lists map.
+	 * Setup the sender check field.
 	 */
-	private void initChoiceLists()
+	private void setupSenderType()
 	{
-		if (choiceLists == null)
-			choiceLists = new TIntObjectHashMap<>();
+		Class<?> senderType = plan.getSenderType();
+
+		if (senderType == null)
+			throw new CommandCreationException("Method " + plan + " don't accept any command sender");
+
+		senderCheck = CmdSenderType.checkOf(senderType);
+		if (senderCheck == null)
+			throw new CommandCreationException("Command sender type " + senderType + " cannot be resolved on" +
+					" method " + plan);
 	}
 
-	/**
-	 * Setup the sender type field.
-	 */
-	private void setupSenderType()
+	/* ---------------- */
+	/* ---- USAGES ---- */
+	/* ---------------- */
+
+	@Override
+	CmdUsage renderUsage(CmdMessages messages, Map<Cmd, CmdUsage> usages)
 	{
-		Class[] parameters = method.getParameterTypes();
+		StringBuilder simpleUsage = new StringBuilder(label)
+				.append(' '); //Used for simple usage message
+		String[] parametersUsage = new String[parametersCount]; //Used for parameters usage message
 
-		if (parameters.length < 1)
-			throw new CommandCreationException("Method " + method + " don't accept any command sender");
+		for (int i = 0; i < parametersCount; i++)
+		{
+			ParameterUsage param = parameterUsages[i];
 
-		senderType = CmdSenderType.get(parameters[0]);
-		if (senderType == null)
-			throw new CommandCreationException("Command sender type " + parameters[0] + " cannot be resolved on" +
-					" method " + method);
+			StringBuilder paramUsageBuilder = new StringBuilder(param.name)
+					.append(": ")
+					.append(param.type.apply(messages));
+
+			//If has description, append it
+			if (!param.desc.isEmpty())
+				paramUsageBuilder.append(messages.getDescriptionSeparator())
+						.append(param.desc);
+
+			if (param.optional)
+				paramUsageBuilder.append(' ')
+						.append(messages.getOptional());
+
+			simpleUsage.append((param.optional ? messages.getSimpleUsageOptional() :
+					messages.getSimpleUsageRequired()).format(param.name))
+					.append(' ');
+			parametersUsage[i] = paramUsageBuilder.toString();
+		}
+
+		CmdUsage usage = new CmdUsage(simpleUsage.toString(), parametersUsage);
+		usages.put(this, usage);
+		return usage;
 	}
 
 	/**
-	 * Get if modifiers contain static.
-	 *
-	 * @param modifiers the modifiers
-	 * @return true if modifiers contain static
+	 * What the usages of a parameter are rendered from.
 	 */
-	private boolean isStatic(int modifiers)
+	@AllArgsConstructor
+	private static final class ParameterUsage
 	{
-		return (modifiers & Modifier.STATIC) != 0;
+		private final String name; //The name of the parameter
+		private final Function<CmdMessages, String> type; //The type of the parameter, rendered from the messages
+		private final String desc; //The description, empty if none
+		private final boolean optional; //Is the parameter optional?
 	}
 
 	/* ------------------ */
@@ -359,88 +361,106 @@ final class CmdMethod extends Cmd
 		if (!checkArgumentCount(count, sender, cmd, loc, rootLabel))//Not enough / Too much arguments
 			return false;
 
-		Object[] args = new Object[parametersCount + 1];
-		args[0] = sender; //First parameter of the method is the sender
+		CmdFrame frame = new CmdFrame(new Object[parametersCount + 1],
+				primitive ? new long[parametersCount + 1] : CmdInvoker.NO_PRIMITIVES, CmdConfig.getMessages(sender));
+		frame.args[0] = sender; //First parameter of the method is the sender
 
-		for (int i = 0; i < count; i++)
+		//The array slot, if any, is last and reads all the remaining arguments
+		int end = Math.min(count, parametersCount);
+		for (int i = 0; i < end; i++)
 		{
-			String arg = cmd[loc + i];
-
-			//-- Serializer handling
-			CommandSerializer<?> serializer = getSerializer(i);
-			if (serializer != null)
+			if (!arguments[i].read(cmd, loc + i, frame, i + 1))
 			{
-				try
-				{
-					args[i + 1] = serializer.serialize(arg);
-					continue;
-				}
-				catch (CommandSerializationException e)
-				{
-					showError(sender, e);
-					return false;
-				}
-			}
-
-			//-- Choice list handling
-			Map<String, Object> choice = getChoiceList(i);
-			if (choice != null)
-			{
-				Object o = choice.get(arg);
-				if (o == null)
+				if (frame.isFailed()) //Parse failure
+					showError(sender, frame.getFailureMessage());
+				else //Not part of the choice list
 				{
 					showHelp(sender, cmd, loc, rootLabel);
-					return false;
+					suggestionMessage(sender, frame.getSuggestion());
 				}
-				args[i + 1] = o;
-				continue;
+				return false;
 			}
+		}
 
-			//-- Array handling
-			if (arrayType != null && i == parametersCount - 1)
-			{
-				int size = count - i;
-				Object array = Array.newInstance(arrayType, size);
-
-
-				if (arraySerializer != null) //Serializer
-					for (int j = 0; j < size; j++)
-					{
-						try
-						{
-							Array.set(array, j, arraySerializer.serialize(cmd[loc + i + j]));
-						}
-						catch (CommandSerializationException e)
-						{
-							showError(sender, e);
-							return false;
-						}
-					}
-				else if (arrayChoice != null) //Choice list
-					for (int j = 0; j < size; j++)
-					{
-						Object o = arrayChoice.get(cmd[loc + i + j]);
-						if (o == null)
-						{
-							showHelp(sender, cmd, loc, rootLabel);
-							return false;
-						}
-
-						Array.set(array, j, o);
-					}
-				else
-					for (int j = 0; j < size; j++) //String
-						Array.set(array, j, cmd[loc + i + j]);
-
-				args[parametersCount] = array;
-				break;
-			}
+		if (frame.isPending()) //Async arguments, dispatched once resolved
+		{
+			CmdAsync.await(frame, () -> completeDispatch(sender, cmd, loc, frame));
+			return true;
+		}
+
+		return invoke(sender, cmd, loc, frame);
+	}
 
-			//-- Arg is a String
-			args[i + 1] = arg;
+	/**
+	 * Dispatch the command once its async arguments are resolved.
+	 *
+	 * @param sender the sender of the command
+	 * @param cmd    the arguments
+	 * @param loc    the location of the first argument of the method
+	 * @param frame  the frame of the dispatch
+	 */
+	private void completeDispatch(CommandSender sender, String[] cmd, int loc, CmdFrame frame)
+	{
+		if (!frame.complete())
+		{
+			showError(sender, frame.getFailureMessage());
+			return;
 		}
 
-		return dispatchToMethod(method, args);
+		try
+		{
+			invoke(sender, cmd, loc, frame);
+		}
+		catch (InvocationTargetException e)
+		{
+			Main.getInstance().getLogger().log(Level.SEVERE, "Error while dispatching command " + label,
+					e.getCause());
+		}
+	}
+
+	/**
+	 * Invoke the method with the arguments of the frame, on the executor if @Async.
+	 * The uses are counted once the command is dispatched.
+	 *
+	 * @param sender the sender of the command
+	 * @param cmd    the arguments
+	 * @param loc    the location of the first argument of the method
+	 * @param frame  the frame of the dispatch
+	 * @return true if the command was properly dispatched
+	 * @throws InvocationTargetException if the method threw an exception
+	 */
+	private boolean invoke(CommandSender sender, String[] cmd, int loc, CmdFrame frame)
+			throws InvocationTargetException
+	{
+		if (plan.isAsync())
+		{
+			recordUses(cmd, loc);
+			CmdAsync.run(invoker, frame.args, frame.primitives, sender, label, plan.getTimeout());
+			return true;
+		}
+
+		boolean dispatched = invoker.invoke(frame.args, frame.primitives);
+		if (dispatched)
+			recordUses(cmd, loc);
+		return dispatched;
+	}
+
+	/**
+	 * Count the uses of the arguments, and of the path to the command, to rank the tab completes.
+	 *
+	 * @param cmd the arguments
+	 * @param loc the location of the first argument of the method
+	 */
+	private void recordUses(String[] cmd, int loc)
+	{
+		for (int i = loc; i < cmd.length; i++)
+		{
+			int index = Math.min(i - loc, parametersCount - 1); //The array slot reads all the remaining arguments
+			if (ranked[index])
+				rankings[index].use(cmd[i]);
+		}
+
+		recordPath();
 	}
 
 	/**
@@ -451,13 +471,13 @@ final class CmdMethod extends Cmd
 	 */
 	private boolean checkPrerequisites(CommandSender sender)
 	{
-		if (!Main.checkPermission(sender, permissions))
+		if (!hasPermission(sender))
 		{
 			noPermissionMessage(sender);
 			return false;
 		}
 
-		if (!senderType.isInstance(sender))
+		if (!senderCheck.test(sender))
 		{
 			invalidSenderTypeMessage(sender);
 			return false;
@@ -477,8 +497,7 @@ final class CmdMethod extends Cmd
 	 */
 	private boolean checkArgumentCount(int count, CommandSender sender, String[] cmd, int loc, String rootLabel)
 	{
-		if ((optStart == -1 ? count < parametersCount : count < optStart) || (arrayType == null && count >
-				parametersCount))
+		if ((optStart == -1 ? count < parametersCount : count < optStart) || (!array && count > parametersCount))
 		{
 			showHelp(sender, cmd, loc, rootLabel);
 			return false;
@@ -486,32 +505,6 @@ final class CmdMethod extends Cmd
 		return true;
 	}
 
-	/**
-	 * Get a serializer from its position in the serializer map.
-	 *
-	 * @param i the position of the argument
-	 * @return the serializer of the argument
-	 */
-	private CommandSerializer getSerializer(int i)
-	{
-		if (serializers != null)
-			return serializers.get(i);
-		return null;
-	}
-
-	/**
-	 * Get a choice list from its position in the choice list map.
-	 *
-	 * @param i the position of the argument
-	 * @return the serializer of the argument
-	 */
-	private Map<String, Object> getChoiceList(int i)
-	{
-		if (choiceLists != null)
-			return choiceLists.get(i);
-		return null;
-	}
-
 	/* ---------------------- */
 	/* ---- TAB-COMPLETE ---- */
 	/* ---------------------- */
@@ -519,64 +512,49 @@ final class CmdMethod extends Cmd
 	@Override
 	public List<String> completeTab(CommandSender sender, String[] cmd, int loc)
 	{
-		int last = cmd.length - 1;
-		int param = last - loc;
-		String str = cmd[last];
-
-		//-- Serialization handling
-		CommandSerializer<?> serializer = getTabSerializer(param);
-		if (serializer == null)
-		{
-			//-- Choice list handling
-			Map<String, Object> choice = getTabChoiceList(param);
-			if (choice == null)
-				return null;
-
-			if (str.isEmpty())
-				return new ArrayList<>(choice.keySet());
-			return choice.keySet().stream()
-					.filter(label -> label.startsWith(str))
-					.collect(Collectors.toList());
-		}
-
-		List<String> tabCompletes = serializer.getAllTabCompletes();
+		if (!hasPermission(sender))
+			return null;
 
-		if (tabCompletes == null)
+		int last = cmd.length - 1;
+		int index = getTabIndex(last - loc);
+		if (index == -1)
 			return null;
 
-		if (str.isEmpty())
-			return tabCompletes;
+		CmdArgument argument = arguments[index];
+		String prefix = cmd[last];
 
-		return tabCompletes.stream()
-				.filter(label -> label.startsWith(str))
-				.collect(Collectors.toList());
+		CmdCompletionCache.Source source = argument.getCompletionSource();
+		if (source == null)
+			return completeTab(index, prefix);
+
+		return CmdCompletionCache.get(this, index, prefix, source, () -> completeTab(index, prefix));
 	}
 
 	/**
-	 * Get a serializer from its position in the serializer map.
-	 * If array as last arg and i=last arg, return the array's serializer.
+	 * Tab-complete an argument, keeping the most used tab completes if there are too many.
 	 *
-	 * @param i the position of the argument
-	 * @return the serializer of the argument
+	 * @param index  the index of the argument
+	 * @param prefix the argument being typed
+	 * @return the sorted list of tab completes, or null if none
 	 */
-	private CommandSerializer getTabSerializer(int i)
+	private List<String> completeTab(int index, String prefix)
 	{
-		if (arrayType != null && i >= parametersCount - 1)
-			return arraySerializer;
-		return getSerializer(i);
+		int max = maxTabCompletes[index];
+		return rankings[index].top(arguments[index].completeTab(prefix),
+				max == -1 ? CmdConfig.getMaxTabCompletes() : max);
 	}
 
 	/**
-	 * Get a choice list from its position in the choice list map.
-	 * If array as last arg and i=last arg, return the array's choice list.
+	 * Get the index of an argument slot from the position of the argument.
+	 * If array as last arg and i=last arg, return the array's slot.
 	 *
 	 * @param i the position of the argument
-	 * @return the serializer of the argument
+	 * @return the index of the slot of the argument, or -1 if none
 	 */
-	private Map<String, Object> getTabChoiceList(int i)
+	private int getTabIndex(int i)
 	{
-		if (arrayType != null && i >= parametersCount - 1)
-			return arrayChoice;
-		return getChoiceList(i);
+		if (i < parametersCount)
+			return i;
+		return array ? parametersCount - 1 : -1;
 	}
 }
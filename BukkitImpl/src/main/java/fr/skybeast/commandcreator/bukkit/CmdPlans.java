@@ -0,0 +1,268 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import fr.skybeast.commandcreator.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 'Static' class for building the commands from their plans.
+ * <p>
+ * The plans of a class are taken from the {@link GeneratedCommands} generated for it by the CommandCreator processor,
+ * so registering its commands does not use reflection. When the class was compiled without the processor, the same
+ * plans are read from its annotations.
+ */
+final class CmdPlans
+{
+	/**
+	 * Build the commands of a class.
+	 *
+	 * @param clazz the class
+	 * @return the compound if the class is a @Command, else its command methods
+	 * @throws ReflectiveOperationException reflection-related method
+	 */
+	static List<Cmd> build(Class<?> clazz)
+			throws ReflectiveOperationException
+	{
+		CommandPlan[] plans;
+		IntFunction<CmdInvoker> invokers;
+
+		GeneratedCommands generated = findGenerated(clazz);
+		if (generated != null) //Compiled with the processor
+		{
+			plans = generated.getPlans();
+			invokers = index -> CmdInvoker.of(generated, index);
+		}
+		else
+		{
+			List<CmdInvoker> found = new ArrayList<>();
+			plans = reflect(clazz, found);
+			invokers = found::get;
+		}
+
+		List<Cmd> commands = new ArrayList<>(plans.length);
+		for (CommandPlan plan : plans)
+			commands.add(build(plan, invokers));
+
+		return commands;
+	}
+
+	/**
+	 * Build a command from its plan.
+	 *
+	 * @param plan     the plan
+	 * @param invokers the invokers of the methods of the plan, by index
+	 * @return the command
+	 * @throws ReflectiveOperationException reflection-related method
+	 */
+	static Cmd build(CommandPlan plan, IntFunction<CmdInvoker> invokers)
+			throws ReflectiveOperationException
+	{
+		return plan.isCompound() ? new CmdCompound(plan, invokers)
+				: new CmdMethod(plan, invokers.apply(plan.getIndex()));
+	}
+
+	/**
+	 * Find the dispatcher generated at compile time for a class.
+	 *
+	 * @param clazz the class
+	 * @return the dispatcher, or null if the class was not compiled with the processor
+	 */
+	private static GeneratedCommands findGenerated(Class<?> clazz)
+	{
+		String name = clazz.getName() + GeneratedCommands.SUFFIX;
+		try
+		{
+			Class<?> generated = Class.forName(name, true, clazz.getClassLoader());
+			if (!GeneratedCommands.class.isAssignableFrom(generated))
+				return null;
+
+			return (GeneratedCommands) generated.getConstructor().newInstance();
+		}
+		catch (ClassNotFoundException e)
+		{
+			return null; //Not compiled with the processor
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new CommandCreationException("Cannot create " + name, e);
+		}
+	}
+
+	/* -------------------- */
+	/* ---- REFLECTION ---- */
+	/* -------------------- */
+
+	/**
+	 * Read the plans of a class from its annotations.
+	 *
+	 * @param clazz    the class
+	 * @param invokers the invokers of the methods, receiving the ones found; the plans refer to them by index
+	 * @return the plan of the compound if the class is a @Command, else the plans of its command methods
+	 * @throws IllegalAccessException if a method is not accessible
+	 */
+	private static CommandPlan[] reflect(Class<?> clazz, List<CmdInvoker> invokers)
+			throws IllegalAccessException
+	{
+		Command annotation = clazz.getAnnotation(Command.class);
+		if (annotation != null) //Class is a command compound
+			return new CommandPlan[]{reflectCompound(clazz, annotation, invokers)};
+
+		//Class has command methods
+		List<CommandPlan> plans = new ArrayList<>();
+		for (Method method : clazz.getMethods())
+		{
+			Command methodAnnotation = method.getAnnotation(Command.class);
+			if (methodAnnotation != null)
+				plans.add(reflectMethod(method, methodAnnotation, invokers));
+		}
+
+		return plans.toArray(new CommandPlan[plans.size()]);
+	}
+
+	/**
+	 * Read the plan of a compound.
+	 *
+	 * @param clazz      the class of the compound
+	 * @param annotation the @Command annotation of the class
+	 * @param invokers   the invokers of the methods
+	 * @return the plan
+	 * @throws IllegalAccessException if a method is not accessible
+	 */
+	private static CommandPlan reflectCompound(Class<?> clazz, Command annotation, List<CmdInvoker> invokers)
+			throws IllegalAccessException
+	{
+		CommandPlan executor = null;
+		List<CommandPlan> subCommands = new ArrayList<>();
+
+		//Find the default executor and the sub commands in methods
+		for (Method method : clazz.getMethods())
+		{
+			if (method.getAnnotation(CommandExecutor.class) != null)
+			{
+				if (executor != null)
+					throw new CommandCreationException("Cannot have two CommandExecutor per command");
+
+				if (method.getParameterCount() != 1)
+					throw new CommandCreationException("A CommandExecutor should only have one argument");
+
+				Async async = method.getAnnotation(Async.class);
+				executor = CommandPlan.executor(register(method, invokers), method.toString(),
+						method.getParameterTypes()[0], async != null, async == null ? 0 : async.timeout());
+				continue;
+			}
+
+			Command subAnnotation = method.getAnnotation(Command.class);
+			if (subAnnotation != null)
+				subCommands.add(reflectMethod(method, subAnnotation, invokers));
+		}
+
+		//Find the sub commands in inner classes
+		for (Class<?> inner : clazz.getClasses())
+		{
+			Command subAnnotation = inner.getAnnotation(Command.class);
+			if (subAnnotation != null)
+				subCommands.add(reflectCompound(inner, subAnnotation, invokers));
+		}
+
+		return CommandPlan.compound(label(annotation, lowerFirst(clazz.getSimpleName())), annotation.description(),
+				annotation.permissions(), annotation.aliases(), executor,
+				subCommands.toArray(new CommandPlan[subCommands.size()]));
+	}
+
+	/**
+	 * Read the plan of a command method.
+	 *
+	 * @param method     the method
+	 * @param annotation the @Command annotation of the method
+	 * @param invokers   the invokers of the methods
+	 * @return the plan
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	private static CommandPlan reflectMethod(Method method, Command annotation, List<CmdInvoker> invokers)
+			throws IllegalAccessException
+	{
+		Parameter[] parameters = method.getParameters();
+		CommandPlan.Parameter[] plans = new CommandPlan.Parameter[Math.max(parameters.length - 1, 0)];
+		for (int i = 0; i < plans.length; i++)
+			plans[i] = reflectParameter(parameters[i + 1]); //Don't use first parameter -- sender type
+
+		Async async = method.getAnnotation(Async.class);
+		return CommandPlan.method(register(method, invokers), method.toString(),
+				label(annotation, method.getName()), annotation.description(), annotation.permissions(),
+				annotation.aliases(), parameters.length == 0 ? null : parameters[0].getType(), async != null,
+				async == null ? 0 : async.timeout(), plans);
+	}
+
+	/**
+	 * Read the plan of a parameter.
+	 *
+	 * @param param the parameter
+	 * @return the plan
+	 */
+	private static CommandPlan.Parameter reflectParameter(Parameter param)
+	{
+		Arg arg = param.getAnnotation(Arg.class);
+		Serial serial = param.getAnnotation(Serial.class);
+
+		String name = arg == null || arg.value().isEmpty() ? param.getName() : arg.value();
+		String valueType = arg == null || arg.type().isEmpty() ? null : arg.type();
+		return CommandPlan.Parameter.of(param.getType(), name, arg == null ? "" : arg.desc(), valueType,
+				arg == null ? -1 : arg.maxTabCompletes(), param.getAnnotation(Opt.class) != null,
+				serial == null ? null : serial.value());
+	}
+
+	/**
+	 * Validate a command method, and create its invoker.
+	 *
+	 * @param method   the method
+	 * @param invokers the invokers of the methods, receiving the new one
+	 * @return the index of the invoker
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	private static int register(Method method, List<CmdInvoker> invokers)
+			throws IllegalAccessException
+	{
+		if (!Modifier.isStatic(method.getModifiers()))
+			throw new CommandCreationException(method + " must be static to be a command");
+
+		Class<?> returnType = method.getReturnType();
+		boolean async = method.getAnnotation(Async.class) != null;
+		if (returnType != void.class && returnType != boolean.class
+				&& (!async || returnType != Runnable.class)) //Completion hooks are for @Async only
+			throw new CommandCreationException(method + " cannot return " + returnType);
+
+		invokers.add(CmdInvoker.of(method));
+		return invokers.size() - 1;
+	}
+
+	/**
+	 * Get the label of a command, or the fallback label if missing.
+	 *
+	 * @param annotation    the @Command annotation
+	 * @param fallbackLabel the fallback label
+	 * @return the label
+	 */
+	private static String label(Command annotation, String fallbackLabel)
+	{
+		return annotation.value().isEmpty() ? fallbackLabel : annotation.value();
+	}
+
+	/**
+	 * Lower the first letter of a String.
+	 *
+	 * @param str the String
+	 * @return the new String
+	 */
+	private static String lowerFirst(String str)
+	{
+		char ch = Character.toLowerCase(str.charAt(0));
+		return ch + str.substring(1, str.length());
+	}
+
+	private CmdPlans() {}
+}
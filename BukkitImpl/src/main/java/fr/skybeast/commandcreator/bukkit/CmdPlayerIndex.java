@@ -0,0 +1,89 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import fr.skybeast.commandcreator.CompletionRange;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The index of the names of the online players, for the tab completion.
+ * <p>
+ * The names are kept in an array sorted case-insensitively, copied on each join and quit: the names starting with a
+ * prefix are a range of the array, returned as a CompletionRange.
+ */
+final class CmdPlayerIndex implements Listener
+{
+	private static volatile String[] names = new String[0]; //The sorted names, replaced on each change
+
+	private CmdPlayerIndex() {}
+
+	/**
+	 * Index the online players, and listen to joins and quits.
+	 *
+	 * @param plugin the plugin
+	 */
+	static void start(Plugin plugin)
+	{
+		String[] online = Bukkit.getOnlinePlayers().stream()
+				.map(Player::getName)
+				.toArray(String[]::new);
+		Arrays.sort(online, String.CASE_INSENSITIVE_ORDER);
+		names = online;
+
+		Bukkit.getPluginManager().registerEvents(new CmdPlayerIndex(), plugin);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onJoin(PlayerJoinEvent event)
+	{
+		String name = event.getPlayer().getName();
+		String[] old = names;
+
+		int i = Arrays.binarySearch(old, name, String.CASE_INSENSITIVE_ORDER);
+		if (i >= 0) //Already indexed
+			return;
+		i = -i - 1;
+
+		String[] updated = new String[old.length + 1];
+		System.arraycopy(old, 0, updated, 0, i);
+		updated[i] = name;
+		System.arraycopy(old, i, updated, i + 1, old.length - i);
+		names = updated;
+		CmdCompletionCache.invalidate(CmdCompletionCache.Source.PLAYERS);
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event)
+	{
+		String[] old = names;
+
+		int i = Arrays.binarySearch(old, event.getPlayer().getName(), String.CASE_INSENSITIVE_ORDER);
+		if (i < 0) //Not indexed
+			return;
+
+		String[] updated = new String[old.length - 1];
+		System.arraycopy(old, 0, updated, 0, i);
+		System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+		names = updated;
+		CmdCompletionCache.invalidate(CmdCompletionCache.Source.PLAYERS);
+	}
+
+	/**
+	 * Get the sorted names of the online players starting with a prefix, ignoring case.
+	 *
+	 * @param prefix the prefix
+	 * @return the unmodifiable view of the names
+	 */
+	static List<String> complete(String prefix)
+	{
+		return CompletionRange.ofIgnoreCase(names, prefix);
+	}
+}
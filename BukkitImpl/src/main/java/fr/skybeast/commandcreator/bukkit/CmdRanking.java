@@ -0,0 +1,123 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The popularity of the values of an argument, to keep the best tab completes when there are too many.
+ * <p>
+ * The top tab completes are selected with a bounded heap, without sorting all of them. When too many values are
+ * counted, the old uses decay to make room for the new values.
+ */
+final class CmdRanking
+{
+	private static final int MAX_TRACKED = 1024; //The maximum number of values counted
+
+	private final Map<String, AtomicLong> uses = new ConcurrentHashMap<>(); //The number of uses of each value
+
+	/**
+	 * Count a use of a value.
+	 *
+	 * @param value the value
+	 */
+	void use(String value)
+	{
+		AtomicLong count = uses.get(value);
+		if (count == null)
+		{
+			if (uses.size() >= MAX_TRACKED) //Make room rather than ignore the new value
+				evict();
+			count = uses.computeIfAbsent(value, v -> new AtomicLong());
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Halve the uses of every value, and forget the values no longer used.
+	 * If every value is still used, forget the least used one.
+	 */
+	private synchronized void evict()
+	{
+		if (uses.size() < MAX_TRACKED) //Another thread made room
+			return;
+
+		String least = null;
+		long leastCount = Long.MAX_VALUE;
+		for (Iterator<Map.Entry<String, AtomicLong>> it = uses.entrySet().iterator(); it.hasNext(); )
+		{
+			Map.Entry<String, AtomicLong> entry = it.next();
+			long count = entry.getValue().updateAndGet(c -> c >> 1);
+			if (count == 0)
+				it.remove();
+			else if (count < leastCount)
+			{
+				least = entry.getKey();
+				leastCount = count;
+			}
+		}
+
+		if (uses.size() >= MAX_TRACKED)
+			uses.remove(least);
+	}
+
+	/**
+	 * Get the number of uses of a value.
+	 *
+	 * @param value the value
+	 * @return the number of uses
+	 */
+	private long score(String value)
+	{
+		AtomicLong count = uses.get(value);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * Keep the most used tab completes, if there are too many.
+	 * Ties are broken by the order of the tab completes.
+	 *
+	 * @param tabCompletes the sorted tab completes, or null
+	 * @param max          the maximum number of tab completes, or 0 for no limit
+	 * @return the sorted tab completes, at most max
+	 */
+	List<String> top(List<String> tabCompletes, int max)
+	{
+		if (tabCompletes == null || max <= 0 || tabCompletes.size() <= max)
+			return tabCompletes;
+
+		if (uses.isEmpty()) //Nothing used yet: the first ones
+			return tabCompletes.subList(0, max);
+
+		//Min-heap of the best indexes so far: the worst of them is replaced by any better one
+		long[] scores = new long[tabCompletes.size()];
+		PriorityQueue<Integer> heap = new PriorityQueue<>(max, (a, b) ->
+				scores[a] != scores[b] ? Long.compare(scores[a], scores[b]) : Integer.compare(b, a));
+
+		int i = 0;
+		for (String tabComplete : tabCompletes)
+		{
+			scores[i] = score(tabComplete);
+			if (heap.size() < max)
+				heap.add(i);
+			else if (heap.comparator().compare(i, heap.peek()) > 0)
+			{
+				heap.poll();
+				heap.add(i);
+			}
+			i++;
+		}
+
+		//Back to the order of the tab completes
+		int[] best = new int[heap.size()];
+		int j = 0;
+		for (int index : heap)
+			best[j++] = index;
+		Arrays.sort(best);
+
+		List<String> top = new ArrayList<>(best.length);
+		for (int index : best)
+			top.add(tabCompletes.get(index));
+		return top;
+	}
+}
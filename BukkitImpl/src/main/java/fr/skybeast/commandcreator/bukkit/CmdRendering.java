@@ -0,0 +1,112 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the messages, and of the usages and help of the commands rendered from them.
+ * <p>
+ * A reload renders a whole new snapshot, published at once: a dispatch never sees a half-updated state.
+ */
+final class CmdRendering
+{
+	@Getter
+	private final CmdMessages messages; //The messages
+	private final List<Cmd> roots; //The registered root commands
+	private final Map<Cmd, CmdUsage> usages; //The usages of every registered command node
+	private final CmdHelpCache help = new CmdHelpCache(); //The help rendered from this snapshot
+
+	/**
+	 * Create a snapshot with no command registered.
+	 *
+	 * @param messages the messages
+	 */
+	CmdRendering(CmdMessages messages)
+	{
+		this(messages, Collections.emptyList(), Collections.emptyMap());
+	}
+
+	private CmdRendering(CmdMessages messages, List<Cmd> roots, Map<Cmd, CmdUsage> usages)
+	{
+		this.messages = messages;
+		this.roots = roots;
+		this.usages = usages;
+	}
+
+	/**
+	 * Render the usages of the registered commands from new messages.
+	 *
+	 * @param messages the new messages
+	 * @return the new snapshot
+	 */
+	CmdRendering withMessages(CmdMessages messages)
+	{
+		Map<Cmd, CmdUsage> usages = new IdentityHashMap<>();
+		for (Cmd root : roots)
+			root.renderUsage(messages, usages);
+
+		return new CmdRendering(messages, roots, usages);
+	}
+
+	/**
+	 * Render the usages of a newly registered command.
+	 *
+	 * @param root the root command
+	 * @return the new snapshot
+	 */
+	CmdRendering withRoot(Cmd root)
+	{
+		Map<Cmd, CmdUsage> usages = new IdentityHashMap<>(this.usages);
+		root.renderUsage(messages, usages);
+
+		List<Cmd> roots = new ArrayList<>(this.roots);
+		roots.add(root);
+		return new CmdRendering(messages, Collections.unmodifiableList(roots), usages);
+	}
+
+	/**
+	 * Render the usages of the commands left after an unregistration.
+	 *
+	 * @param removed the unregistered root commands
+	 * @return the new snapshot
+	 */
+	CmdRendering withoutRoots(Collection<Cmd> removed)
+	{
+		List<Cmd> roots = new ArrayList<>(this.roots);
+		roots.removeAll(removed);
+
+		Map<Cmd, CmdUsage> usages = new IdentityHashMap<>();
+		for (Cmd root : roots)
+			root.renderUsage(messages, usages);
+
+		return new CmdRendering(messages, Collections.unmodifiableList(roots), usages);
+	}
+
+	/**
+	 * Get the usages of a command node.
+	 *
+	 * @param cmd the command node
+	 * @return the usages
+	 */
+	CmdUsage getUsage(Cmd cmd)
+	{
+		CmdUsage usage = usages.get(cmd);
+		return usage == null ? cmd.renderUsage(messages, new IdentityHashMap<>()) : usage; //Not registered
+	}
+
+	/**
+	 * Get the help of a command node, rendered once per path and visibility.
+	 *
+	 * @param node       the command node
+	 * @param cmd        the arguments
+	 * @param loc        the location of the argument to dispatch
+	 * @param rootLabel  the original label
+	 * @param visibility the visibility bitmap of the entries of the help
+	 * @return the lines of the help
+	 */
+	String[] getHelp(Cmd node, String[] cmd, int loc, String rootLabel, long[] visibility)
+	{
+		return help.get(this, node, cmd, loc, rootLabel, visibility);
+	}
+}
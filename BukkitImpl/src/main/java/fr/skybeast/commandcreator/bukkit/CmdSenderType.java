@@ -1,52 +1,146 @@
 package fr.skybeast.commandcreator.bukkit;
 
-import lombok.Getter;
-import org.bukkit.command.CommandSender;
-import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.command.*;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.minecart.CommandMinecart;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 /**
- * Enumeration of sender types.
+ * A type of command sender, named in the config.
+ * <p>
+ * The types are kept in a registry, open to the plugins. The type of a class of sender is resolved once, to the most
+ * specific type registered, then read from a {@link ClassValue}.
  */
-enum CmdSenderType
+final class CmdSenderType
 {
-	PLAYER(Player.class, "player"),
-	CONSOLE(ConsoleCommandSender.class, "console"),
-	ALL(CommandSender.class, "all");
+	private static final Predicate<CommandSender> ANY_SENDER = sender -> true;
+
+	private static final List<CmdSenderType> TYPES = new CopyOnWriteArrayList<>(); //The registered types
+	private static volatile ClassValue<CmdSenderType> resolved = newCache(); //The type of each class of sender
 
-	private final Class<? extends CommandSender> clazz;
+	/**
+	 * The key of the name of the senders of unknown type in the config.
+	 */
+	static final String UNKNOWN = "unknown";
+
+	private final Class<?> clazz;
 	@Getter
-	private final String name;
+	private final String config; //The key of the name in the config
+
+	static
+	{
+		register(Player.class, "player");
+		register(ConsoleCommandSender.class, "console");
+		register(RemoteConsoleCommandSender.class, "remoteConsole");
+		register(BlockCommandSender.class, "commandBlock");
+		register(CommandMinecart.class, "commandMinecart");
+		register(ProxiedCommandSender.class, "proxied");
+	}
 
-	CmdSenderType(Class<? extends CommandSender> clazz, String config)
+	private CmdSenderType(Class<?> clazz, String config)
 	{
 		this.clazz = clazz;
-		name = CmdConfig.getMessage("senderTypes." + config);
+		this.config = config;
 	}
 
 	/**
-	 * Get if a command sender is instance of this SenderType.
+	 * Register a type of sender, replacing the type of the same class if any.
 	 *
-	 * @param sender the command sender
-	 * @return true if the sender is instance of this SenderType
+	 * @param clazz  the class of the senders
+	 * @param config the key of the name in the config, or the name itself if not in the config
 	 */
-	boolean isInstance(CommandSender sender)
+	static synchronized void register(Class<?> clazz, String config)
 	{
-		return clazz.isInstance(sender);
+		TYPES.removeIf(type -> type.clazz == clazz);
+		TYPES.add(new CmdSenderType(clazz, config));
+		resolved = newCache(); //The classes already seen may resolve to the new type
 	}
 
 	/**
-	 * Get a sender type from its class.
+	 * Forget the types of a class loader, such as the ones of a disabled plugin.
+	 *
+	 * @param loader the class loader
+	 */
+	static synchronized void release(ClassLoader loader)
+	{
+		if (TYPES.removeIf(type -> type.clazz.getClassLoader() == loader))
+			resolved = newCache(); //The classes already seen may resolve to the removed types
+	}
+
+	/**
+	 * Create the cache of the types of the classes of senders.
+	 *
+	 * @return the cache
+	 */
+	private static ClassValue<CmdSenderType> newCache()
+	{
+		return new ClassValue<CmdSenderType>()
+		{
+			@Override
+			protected CmdSenderType computeValue(Class<?> type)
+			{
+				return resolve(type);
+			}
+		};
+	}
+
+	/**
+	 * Resolve the most specific type of a class of sender.
 	 *
 	 * @param clazz the class
+	 * @return the sender type, or null if none
+	 */
+	private static CmdSenderType resolve(Class<?> clazz)
+	{
+		CmdSenderType found = null;
+		for (CmdSenderType type : TYPES)
+			if (type.clazz.isAssignableFrom(clazz) && (found == null || found.clazz.isAssignableFrom(type.clazz)))
+				found = type;
+
+		return found;
+	}
+
+	/**
+	 * Get the registered types.
+	 *
+	 * @return the types
+	 */
+	static List<CmdSenderType> getTypes()
+	{
+		return Collections.unmodifiableList(TYPES);
+	}
+
+	/**
+	 * Get the type of a sender.
+	 *
+	 * @param sender the sender
 	 * @return the sender type or null if not found
 	 */
-	static CmdSenderType get(Class<?> clazz)
+	static CmdSenderType get(CommandSender sender)
+	{
+		return resolved.get(sender.getClass());
+	}
+
+	/**
+	 * Get the check of the senders accepted by a parameter, computed once per command.
+	 *
+	 * @param parameter the type of the parameter
+	 * @return the check, or null if the parameter is not a command sender
+	 */
+	static Predicate<CommandSender> checkOf(Class<?> parameter)
 	{
-		for (CmdSenderType type : values())
-			if (type.clazz.isAssignableFrom(clazz))
-				return type;
+		if (parameter == CommandSender.class)
+			return ANY_SENDER;
+
+		if (!CommandSender.class.isAssignableFrom(parameter))
+			return null;
 
-		return null;
+		return parameter::isInstance;
 	}
 }
@@ -1,19 +1,15 @@
 package fr.skybeast.commandcreator.bukkit;
 
-import fr.skybeast.commandcreator.CommandSerializationException;
-import fr.skybeast.commandcreator.CommandSerializer;
+import fr.skybeast.commandcreator.*;
 import lombok.AllArgsConstructor;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * 'Static' class for handling serializers.
@@ -30,6 +26,11 @@ final class CmdSerializers
 	 */
 	private static final Map<Class<?>, CommandSerializer<?>> CACHE = new HashMap<>();
 
+	/**
+	 * The name of the console, as a command sender.
+	 */
+	private static final String CONSOLE = "@CONSOLE";
+
 
 	/* ----------------------------- */
 	/* ---- DEFAULT SERIALIZERS ---- */
@@ -38,39 +39,53 @@ final class CmdSerializers
 	// Primitives
 
 	static final CommandSerializer<Boolean> BOOLEAN = new ConstantTabCompleteCommandSerializer<>(
-			Boolean::valueOf,
-			name("boolean"),
+			(str, result) -> Boolean.valueOf(str),
+			"boolean",
 			Arrays.asList("false", "true")
 	);
 
-	static final CommandSerializer<Byte> BYTE = new NoTabCommandSerializer<>(Byte::valueOf, name("byte"));
-	static final CommandSerializer<Short> SHORT = new NoTabCommandSerializer<>(Short::valueOf, name("short"));
-	static final CommandSerializer<Integer> INTEGER = new NoTabCommandSerializer<>(Integer::valueOf, name("integer"));
-	static final CommandSerializer<Long> LONG = new NoTabCommandSerializer<>(Long::valueOf, name("long"));
-	static final CommandSerializer<Float> FLOAT = new NoTabCommandSerializer<>(Float::valueOf, name("float"));
-	static final CommandSerializer<Double> DOUBLE = new NoTabCommandSerializer<>(Double::valueOf, name("double"));
-	static final CommandSerializer<Character> CHARACTER = new NoTabCommandSerializer<>(str -> str.charAt(0),
-			name("character"));
+	static final ByteCommandSerializer BYTE = new ByteSerializer("byte");
+	static final ShortCommandSerializer SHORT = new ShortSerializer("short");
+	static final IntCommandSerializer INTEGER = new IntSerializer("integer");
+	static final LongCommandSerializer LONG = new LongSerializer("long");
+	static final FloatCommandSerializer FLOAT = new FloatSerializer("float");
+	static final DoubleCommandSerializer DOUBLE = new DoubleSerializer("double");
+	static final CommandSerializer<Character> CHARACTER = new NoTabCommandSerializer<>(
+			(str, result) ->
+			{
+				if (!str.isEmpty())
+					return str.charAt(0);
+
+				result.fail(ParseFailure.INVALID_TYPE);
+				return null;
+			},
+			"character");
 
 	// Others
 
+	static final CommandSerializer<UUID> UNIQUE_ID = new NoTabCommandSerializer<>(
+			CmdSerializers::parseUniqueId,
+			"uuid"
+	);
+
 	static final CommandSerializer<Player> PLAYER = new CommandSerializerImpl<>(
 			CmdSerializers::getPlayer,
-			name("player"),
-			() -> sort(getAllPlayers())
+			"player",
+			CmdPlayerIndex::complete
 	);
 
 	@SuppressWarnings("deprecation")
-	static final CommandSerializer<OfflinePlayer> OFFLINE_PLAYER = new CommandSerializerImpl<>(
-			Bukkit::getOfflinePlayer,
-			name("offlinePlayer"),
-			() -> sort(getAllPlayers())
+	static final CommandSerializer<OfflinePlayer> OFFLINE_PLAYER = new AsyncCommandSerializerImpl<>(
+			Bukkit::getPlayerExact, //Online players need no lookup
+			Bukkit::getOfflinePlayer, //May query the profile of the player
+			"offlinePlayer",
+			CmdPlayerIndex::complete
 	);
 
 	static final CommandSerializer<CommandSender> COMMAND_SENDER = new CommandSerializerImpl<>(
-			str -> "@CONSOLE".equalsIgnoreCase(str) ? Bukkit.getConsoleSender() : getPlayer(str),
-			name("commandSender"),
-			() -> sort(append(getAllPlayers(), "@CONSOLE"))
+			(str, result) -> CONSOLE.equalsIgnoreCase(str) ? Bukkit.getConsoleSender() : getPlayer(str, result),
+			"commandSender",
+			CmdSerializers::completeSenders
 	);
 
 	/*
@@ -95,6 +110,7 @@ final class CmdSerializers
 		INSTANCES.put(Double.class, DOUBLE);
 		INSTANCES.put(char.class, CHARACTER);
 		INSTANCES.put(Character.class, CHARACTER);
+		INSTANCES.put(UUID.class, UNIQUE_ID);
 
 		// Others
 		INSTANCES.put(Player.class, PLAYER);
@@ -140,106 +156,307 @@ final class CmdSerializers
 		return serial;
 	}
 
-	/* -------------------------- */
-	/* ---- SERIALIZER UTILS ---- */
-	/* -------------------------- */
+	/**
+	 * Forget the custom serializers of a class loader, or serializing its classes, such as the ones of a disabled
+	 * plugin.
+	 *
+	 * @param loader the class loader
+	 */
+	static void release(ClassLoader loader)
+	{
+		CACHE.entrySet().removeIf(entry -> entry.getKey().getClassLoader() == loader
+				|| entry.getValue().getClass().getClassLoader() == loader);
+	}
 
 	/**
-	 * Get all online players' name.
+	 * Check if a serializer may have tab completes, without asking it.
+	 * Only the default serializers are known to have none; a custom one may complete later even if it cannot now.
 	 *
-	 * @return all online players' name into a modifiable list
+	 * @param serializer the serializer
+	 * @return false if the serializer never has tab completes
 	 */
-	private static List<String> getAllPlayers()
+	static boolean hasCompletions(CommandSerializer<?> serializer)
 	{
-		return Bukkit.getOnlinePlayers().stream()
-				.map(Player::getName)
-				.collect(Collectors.toList());
+		return !(serializer instanceof NumberSerializer) && serializer.getClass() != NoTabCommandSerializer.class;
 	}
 
 	/**
-	 * Sort the list.
+	 * Get the source of the tab completes of a serializer, for the completion cache.
 	 *
-	 * @param list the list
-	 * @return the list
+	 * @param serializer the serializer
+	 * @return the source, or null if the tab completes are constant and need no cache
 	 */
-	private static List<String> sort(List<String> list)
+	static CmdCompletionCache.Source getCompletionSource(CommandSerializer<?> serializer)
 	{
-		list.sort(null);
-		return list;
+		if (serializer == PLAYER || serializer == OFFLINE_PLAYER || serializer == COMMAND_SENDER)
+			return CmdCompletionCache.Source.PLAYERS;
+		return INSTANCES.containsValue(serializer) ? null : CmdCompletionCache.Source.SERIALIZERS;
+	}
+
+	/* -------------------------- */
+	/* ---- SERIALIZER UTILS ---- */
+	/* -------------------------- */
+
+	/**
+	 * Get the sorted command senders starting with a prefix: the online players, and the console.
+	 *
+	 * @param prefix the prefix
+	 * @return the sorted names
+	 */
+	private static List<String> completeSenders(String prefix)
+	{
+		List<String> players = CmdPlayerIndex.complete(prefix);
+		if (!CONSOLE.regionMatches(true, 0, prefix, 0, prefix.length()))
+			return players;
+		if (players.isEmpty())
+			return Collections.singletonList(CONSOLE);
+
+		List<String> senders = new ArrayList<>(players.size() + 1);
+		senders.addAll(players);
+		int i = Collections.binarySearch(senders, CONSOLE, String.CASE_INSENSITIVE_ORDER);
+		senders.add(i < 0 ? -i - 1 : i, CONSOLE);
+		return senders;
 	}
 
 	/**
-	 * Append a value to a list.
+	 * Get the value type of a serializer, as named by the messages.
+	 * The names of the default serializers are read from the messages, so they follow the locale and the reloads.
 	 *
-	 * @param list the list
-	 * @param str  the value to append
-	 * @return the list
+	 * @param serializer the serializer
+	 * @param messages   the messages
+	 * @return the value type
 	 */
-	private static List<String> append(List<String> list, String str)
+	static String valueType(CommandSerializer<?> serializer, CmdMessages messages)
 	{
-		list.add(str);
-		return list;
+		String key = getNameKey(serializer);
+		return key == null ? serializer.valueType() : messages.getSerializerName(key);
 	}
 
 	/**
-	 * Get a serializer name from the config by its key.
+	 * Get the key of the name of a default serializer.
 	 *
-	 * @param key the key
-	 * @return the name
+	 * @param serializer the serializer
+	 * @return the key of the name, in {@code serializerNames}, or null if the serializer is a custom one
 	 */
-	private static String name(String key)
+	static String getNameKey(CommandSerializer<?> serializer)
 	{
-		return CmdConfig.getMessage("serializerNames." + key);
+		return serializer instanceof DefaultSerializer ? ((DefaultSerializer) serializer).getNameKey() : null;
 	}
 
 	/**
 	 * Get a player from its name.
 	 *
-	 * @param str the name of the player
+	 * @param str    the name of the player
+	 * @param result the result receiving the failure if the player was not found
 	 * @return the player
-	 * @throws CommandSerializationException if the player was not found
 	 */
-	private static Player getPlayer(String str)
-			throws CommandSerializationException
+	private static Player getPlayer(String str, ParseResult result)
 	{
 		Player player = Bukkit.getPlayer(str);
 		if (player == null)
-			throw new CommandSerializationException("Cannot find player \"" + str + '"');
+			result.fail(ParseFailure.PLAYER_NOT_FOUND);
 		return player;
 	}
 
 	/**
-	 * Format an argument.
+	 * Parse an integer without throwing exceptions, as Long.parseLong would.
+	 *
+	 * @param arg    the argument
+	 * @param min    the minimum value
+	 * @param max    the maximum value
+	 * @param result the result receiving the failure
+	 * @return the parsed integer
+	 */
+	private static long parseInteger(String arg, long min, long max, ParseResult result)
+	{
+		int length = arg.length();
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (arg.charAt(0) == '-' || arg.charAt(0) == '+'))
+		{
+			negative = arg.charAt(0) == '-';
+			i++;
+		}
+
+		if (i == length)
+		{
+			result.fail(ParseFailure.INVALID_TYPE);
+			return 0;
+		}
+
+		//Accumulate negatively, as the negative range is the largest
+		long limit = negative ? min : -max;
+		long multMin = limit / 10;
+		long value = 0;
+		for (; i < length; i++)
+		{
+			int digit = Character.digit(arg.charAt(i), 10);
+			if (digit < 0 || value < multMin || value * 10 < limit + digit)
+			{
+				result.fail(ParseFailure.INVALID_TYPE);
+				return 0;
+			}
+			value = value * 10 - digit;
+		}
+
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Get if an argument is a decimal number, as Double.parseDouble would accept it.
+	 * The hexadecimal notation is not supported.
+	 *
+	 * @param arg the argument
+	 * @return true if the argument is a decimal number
+	 */
+	private static boolean isDecimal(String arg)
+	{
+		int length = arg.length();
+		int i = 0;
+		if (i < length && (arg.charAt(i) == '-' || arg.charAt(i) == '+'))
+			i++;
+
+		if (arg.startsWith("NaN", i))
+			return length == i + 3;
+		if (arg.startsWith("Infinity", i))
+			return length == i + 8;
+
+		int digits = 0;
+		for (; i < length && isDigit(arg.charAt(i)); i++)
+			digits++;
+		if (i < length && arg.charAt(i) == '.')
+			for (i++; i < length && isDigit(arg.charAt(i)); i++)
+				digits++;
+		if (digits == 0)
+			return false;
+
+		if (i < length && (arg.charAt(i) == 'e' || arg.charAt(i) == 'E'))
+		{
+			i++;
+			if (i < length && (arg.charAt(i) == '-' || arg.charAt(i) == '+'))
+				i++;
+
+			int exponent = i;
+			while (i < length && isDigit(arg.charAt(i)))
+				i++;
+			if (i == exponent)
+				return false;
+		}
+
+		//Type suffix
+		if (i < length && "fFdD".indexOf(arg.charAt(i)) != -1)
+			i++;
+
+		return i == length;
+	}
+
+	/**
+	 * Get if a char is an ASCII digit.
+	 *
+	 * @param ch the char
+	 * @return true if the char is an ASCII digit
+	 */
+	private static boolean isDigit(char ch)
+	{
+		return ch >= '0' && ch <= '9';
+	}
+
+	/**
+	 * Parse an UUID in its canonical form without throwing exceptions.
 	 *
-	 * @param formatter the formatter
-	 * @param arg       the argument
-	 * @param valueType the value type of the argument
-	 * @param <T>       the type of argument
-	 * @return the formatted argument
-	 * @throws CommandSerializationException if error while formatting
+	 * @param arg    the argument
+	 * @param result the result receiving the failure
+	 * @return the UUID
 	 */
-	private static <T> T safeFormat(SafeFormatter<T> formatter, String arg, String valueType)
-			throws CommandSerializationException
+	private static UUID parseUniqueId(String arg, ParseResult result)
 	{
-		try
+		if (arg.length() != 36)
 		{
-			return formatter.format(arg);
+			result.fail(ParseFailure.INVALID_TYPE);
+			return null;
 		}
-		catch (NumberFormatException ignored)
+
+		long mostSigBits = 0;
+		long leastSigBits = 0;
+		int digits = 0;
+		for (int i = 0; i < 36; i++)
 		{
-			throw new CommandSerializationException("Input \"" + arg + "\" is not of type " + valueType);
+			char ch = arg.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if (ch == '-')
+					continue;
+
+				result.fail(ParseFailure.INVALID_TYPE);
+				return null;
+			}
+
+			int digit = Character.digit(ch, 16);
+			if (digit < 0)
+			{
+				result.fail(ParseFailure.INVALID_TYPE);
+				return null;
+			}
+
+			if (digits++ < 16)
+				mostSigBits = mostSigBits << 4 | digit;
+			else
+				leastSigBits = leastSigBits << 4 | digit;
 		}
+
+		return new UUID(mostSigBits, leastSigBits);
 	}
 
 	/**
-	 * Argument-formatter.
+	 * Argument-parser, without exceptions.
 	 *
 	 * @param <T> the type of argument
 	 */
 	@FunctionalInterface
-	private interface SafeFormatter<T>
+	private interface Parser<T>
 	{
-		T format(String arg) throws NumberFormatException, CommandSerializationException;
+		T parse(String arg, ParseResult result);
+	}
+
+	/**
+	 * A parse result throwing the failure, used to implement the serialize methods.
+	 */
+	private static final class ThrowingParseResult implements ParseResult
+	{
+		private ParseFailure failure;
+
+		@Override
+		public void fail(ParseFailure failure)
+		{
+			this.failure = failure;
+		}
+
+		/**
+		 * Throw the failure, if any.
+		 *
+		 * @param arg       the parsed argument
+		 * @param valueType the value type of the argument
+		 * @throws CommandSerializationException if the parse failed
+		 */
+		void check(String arg, String valueType)
+				throws CommandSerializationException
+		{
+			if (failure != null)
+				throw new CommandSerializationException(CmdConfig.formatFailure(failure, arg, valueType));
+		}
+	}
+
+	/**
+	 * A default serializer, named in the messages.
+	 */
+	private interface DefaultSerializer
+	{
+		/**
+		 * Get the key of the name of the serializer.
+		 *
+		 * @return the key of the name, in {@code serializerNames}
+		 */
+		String getNameKey();
 	}
 
 	/**
@@ -248,21 +465,184 @@ final class CmdSerializers
 	 * @param <T> the type of argument
 	 */
 	@AllArgsConstructor
-	private static class NoTabCommandSerializer<T> implements CommandSerializer<T>
+	private static class NoTabCommandSerializer<T> implements CommandSerializer<T>, DefaultSerializer
 	{
-		final SafeFormatter<T> formatter;
-		final String valueType;
+		final Parser<T> parser;
+		final String nameKey; //The key of the name, in serializerNames
 
 		@Override
 		public T serialize(String arg) throws CommandSerializationException
 		{
-			return safeFormat(formatter, arg, valueType);
+			ThrowingParseResult result = new ThrowingParseResult();
+			T value = parser.parse(arg, result);
+			result.check(arg, valueType());
+			return value;
 		}
 
 		@Override
+		public T tryParse(String arg, ParseResult result)
+		{
+			return parser.parse(arg, result);
+		}
+
+		@Override
+		public String valueType()
+		{
+			return CmdConfig.getSerializerName(nameKey); //In the messages of the server
+		}
+
+		@Override
+		public String getNameKey()
+		{
+			return nameKey;
+		}
+	}
+
+	/**
+	 * A serializer of a primitive number, with no tab complete.
+	 */
+	@AllArgsConstructor
+	private abstract static class NumberSerializer implements DefaultSerializer
+	{
+		final String nameKey; //The key of the name, in serializerNames
+
 		public String valueType()
 		{
-			return valueType;
+			return CmdConfig.getSerializerName(nameKey); //In the messages of the server
+		}
+
+		@Override
+		public String getNameKey()
+		{
+			return nameKey;
+		}
+	}
+
+	private static final class ByteSerializer extends NumberSerializer implements ByteCommandSerializer
+	{
+		ByteSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public byte tryParseByte(String arg, ParseResult result)
+		{
+			return (byte) parseInteger(arg, Byte.MIN_VALUE, Byte.MAX_VALUE, result);
+		}
+
+		@Override
+		public byte serializeByte(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			byte value = tryParseByte(arg, result);
+			result.check(arg, valueType());
+			return value;
+		}
+	}
+
+	private static final class ShortSerializer extends NumberSerializer implements ShortCommandSerializer
+	{
+		ShortSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public short tryParseShort(String arg, ParseResult result)
+		{
+			return (short) parseInteger(arg, Short.MIN_VALUE, Short.MAX_VALUE, result);
+		}
+
+		@Override
+		public short serializeShort(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			short value = tryParseShort(arg, result);
+			result.check(arg, valueType());
+			return value;
+		}
+	}
+
+	private static final class IntSerializer extends NumberSerializer implements IntCommandSerializer
+	{
+		IntSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public int tryParseInt(String arg, ParseResult result)
+		{
+			return (int) parseInteger(arg, Integer.MIN_VALUE, Integer.MAX_VALUE, result);
+		}
+
+		@Override
+		public int serializeInt(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			int value = tryParseInt(arg, result);
+			result.check(arg, valueType());
+			return value;
+		}
+	}
+
+	private static final class LongSerializer extends NumberSerializer implements LongCommandSerializer
+	{
+		LongSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public long tryParseLong(String arg, ParseResult result)
+		{
+			return parseInteger(arg, Long.MIN_VALUE, Long.MAX_VALUE, result);
+		}
+
+		@Override
+		public long serializeLong(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			long value = tryParseLong(arg, result);
+			result.check(arg, valueType());
+			return value;
+		}
+	}
+
+	private static final class FloatSerializer extends NumberSerializer implements FloatCommandSerializer
+	{
+		FloatSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public float tryParseFloat(String arg, ParseResult result)
+		{
+			if (isDecimal(arg))
+				return Float.parseFloat(arg);
+
+			result.fail(ParseFailure.INVALID_TYPE);
+			return 0;
+		}
+
+		@Override
+		public float serializeFloat(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			float value = tryParseFloat(arg, result);
+			result.check(arg, valueType());
+			return value;
+		}
+	}
+
+	private static final class DoubleSerializer extends NumberSerializer implements DoubleCommandSerializer
+	{
+		DoubleSerializer(String nameKey) {super(nameKey);}
+
+		@Override
+		public double tryParseDouble(String arg, ParseResult result)
+		{
+			if (isDecimal(arg))
+				return Double.parseDouble(arg);
+
+			result.fail(ParseFailure.INVALID_TYPE);
+			return 0;
+		}
+
+		@Override
+		public double serializeDouble(String arg) throws CommandSerializationException
+		{
+			ThrowingParseResult result = new ThrowingParseResult();
+			double value = tryParseDouble(arg, result);
+			result.check(arg, valueType());
+			return value;
 		}
 	}
 
@@ -273,25 +653,24 @@ final class CmdSerializers
 	 */
 	private static class CommandSerializerImpl<T> extends NoTabCommandSerializer<T>
 	{
-		final Supplier<List<String>> tabCompleter;
+		final Function<String, List<String>> tabCompleter; //Get the sorted tab completes starting with a prefix
 
-		CommandSerializerImpl(SafeFormatter<T> formatter, String valueType, Supplier<List<String>>
-				tabCompleter)
+		CommandSerializerImpl(Parser<T> parser, String nameKey, Function<String, List<String>> tabCompleter)
 		{
-			super(formatter, valueType);
+			super(parser, nameKey);
 			this.tabCompleter = tabCompleter;
 		}
 
 		@Override
-		public T serialize(String arg) throws CommandSerializationException
+		public List<String> getAllTabCompletes()
 		{
-			return formatter.format(arg);
+			return tabCompleter.apply("");
 		}
 
 		@Override
-		public List<String> getAllTabCompletes()
+		public List<String> getTabCompletes(String prefix)
 		{
-			return tabCompleter.get();
+			return tabCompleter.apply(prefix);
 		}
 	}
 
@@ -304,22 +683,64 @@ final class CmdSerializers
 	{
 		final List<String> tabCompletes;
 
-		ConstantTabCompleteCommandSerializer(SafeFormatter<T> formatter, String valueType, List<String> tabCompletes)
+		ConstantTabCompleteCommandSerializer(Parser<T> parser, String nameKey, List<String> tabCompletes)
 		{
-			super(formatter, valueType);
+			super(parser, nameKey);
 			this.tabCompletes = tabCompletes;
 		}
 
 		@Override
-		public T serialize(String arg) throws CommandSerializationException
+		public List<String> getAllTabCompletes()
 		{
-			return formatter.format(arg);
+			return tabCompletes;
+		}
+	}
+
+	/**
+	 * A serializer whose lookup blocks, run on the executor of the async commands.
+	 *
+	 * @param <T> the type of argument
+	 */
+	@AllArgsConstructor
+	private static class AsyncCommandSerializerImpl<T> implements AsyncCommandSerializer<T>, DefaultSerializer
+	{
+		final Function<String, T> cached; //The non-blocking lookup, returning null if the lookup must be done
+		final Function<String, T> lookup; //The blocking lookup
+		final String nameKey; //The key of the name, in serializerNames
+		final Function<String, List<String>> tabCompleter; //Get the sorted tab completes starting with a prefix
+
+		@Override
+		public CompletableFuture<T> serializeAsync(String arg)
+		{
+			T value = cached.apply(arg);
+			if (value != null)
+				return CompletableFuture.completedFuture(value);
+
+			return CompletableFuture.supplyAsync(() -> lookup.apply(arg), CmdAsync.getExecutor());
+		}
+
+		@Override
+		public String valueType()
+		{
+			return CmdConfig.getSerializerName(nameKey); //In the messages of the server
+		}
+
+		@Override
+		public String getNameKey()
+		{
+			return nameKey;
 		}
 
 		@Override
 		public List<String> getAllTabCompletes()
 		{
-			return tabCompletes;
+			return tabCompleter.apply("");
+		}
+
+		@Override
+		public List<String> getTabCompletes(String prefix)
+		{
+			return tabCompleter.apply(prefix);
 		}
 	}
 
@@ -0,0 +1,196 @@
+package fr.skybeast.commandcreator.bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A message template, compiled once into literal parts and placeholders.
+ * <p>
+ * The {@code %s}, {@code %1$s}, {@code %-10s}, {@code %%} and {@code %n} specifiers are substituted by direct appends.
+ * Templates with any other specifier are left to {@link String#format(String, Object...)}.
+ */
+final class CmdTemplate
+{
+	private static final Pattern SPECIFIER = Pattern.compile("%(?:(\\d+)\\$)?(-)?(\\d+)?([a-zA-Z%])");
+
+	private final String template; //The raw template
+	private final String[] literals; //The literal parts, around the placeholders -- null if not compiled
+	private final int[] indexes; //The index of the argument of each placeholder
+	private final int[] widths; //The width of each placeholder, negative if left-justified, 0 if none
+	private final int maxIndex; //The greatest index of argument, -1 if none
+	private final int length; //The length of the literal parts
+
+	private CmdTemplate(String template, String[] literals, int[] indexes, int[] widths)
+	{
+		this.template = template;
+		this.literals = literals;
+		this.indexes = indexes;
+		this.widths = widths;
+
+		int max = -1;
+		int len = 0;
+		if (literals != null)
+		{
+			for (int index : indexes)
+				max = Math.max(max, index);
+			for (String literal : literals)
+				len += literal.length();
+		}
+		maxIndex = max;
+		length = len;
+	}
+
+	/**
+	 * Compile a template.
+	 *
+	 * @param template the template
+	 * @return the compiled template
+	 */
+	static CmdTemplate compile(String template)
+	{
+		List<String> literals = new ArrayList<>();
+		List<int[]> placeholders = new ArrayList<>(); //{index, width}
+		StringBuilder literal = new StringBuilder();
+		int ordinary = 0; //The index of the next argument without explicit index
+
+		Matcher matcher = SPECIFIER.matcher(template);
+		int last = 0;
+		while (matcher.find())
+		{
+			if (template.indexOf('%', last) != matcher.start()) //A '%' the pattern cannot read
+				return new CmdTemplate(template, null, null, null);
+
+			literal.append(template, last, matcher.start());
+			last = matcher.end();
+
+			String index = matcher.group(1);
+			boolean left = matcher.group(2) != null;
+			String width = matcher.group(3);
+			char conversion = matcher.group(4).charAt(0);
+
+			if (conversion == 's')
+			{
+				if (left && width == null) //Not allowed by the Formatter
+					return new CmdTemplate(template, null, null, null);
+
+				int w = width == null ? 0 : Integer.parseInt(width);
+				placeholders.add(new int[]{index == null ? ordinary++ : Integer.parseInt(index) - 1, left ? -w : w});
+				literals.add(literal.toString());
+				literal.setLength(0);
+			}
+			else if ((conversion == '%' || conversion == 'n') && index == null && !left && width == null)
+				literal.append(conversion == '%' ? "%" : System.lineSeparator());
+			else //Any other specifier
+				return new CmdTemplate(template, null, null, null);
+		}
+
+		if (template.indexOf('%', last) != -1)
+			return new CmdTemplate(template, null, null, null);
+
+		literals.add(literal.append(template, last, template.length()).toString());
+
+		int[] indexes = new int[placeholders.size()];
+		int[] widths = new int[placeholders.size()];
+		for (int i = 0; i < indexes.length; i++)
+		{
+			int[] placeholder = placeholders.get(i);
+			if (placeholder[0] < 0) //%0$s
+				return new CmdTemplate(template, null, null, null);
+
+			indexes[i] = placeholder[0];
+			widths[i] = placeholder[1];
+		}
+
+		return new CmdTemplate(template, literals.toArray(new String[literals.size()]), indexes, widths);
+	}
+
+	/**
+	 * Format the template without argument.
+	 *
+	 * @return the message
+	 */
+	String format()
+	{
+		if (literals == null || maxIndex >= 0)
+			return String.format(template);
+
+		return literals[0];
+	}
+
+	/**
+	 * Format the template with one argument.
+	 *
+	 * @param arg the argument
+	 * @return the message
+	 */
+	String format(Object arg)
+	{
+		if (literals == null || maxIndex >= 1)
+			return String.format(template, arg);
+
+		return render(arg, null);
+	}
+
+	/**
+	 * Format the template with two arguments.
+	 *
+	 * @param arg0 the first argument
+	 * @param arg1 the second argument
+	 * @return the message
+	 */
+	String format(Object arg0, Object arg1)
+	{
+		if (literals == null || maxIndex >= 2)
+			return String.format(template, arg0, arg1);
+
+		return render(arg0, arg1);
+	}
+
+	/**
+	 * Render the compiled template.
+	 *
+	 * @param arg0 the first argument
+	 * @param arg1 the second argument
+	 * @return the message
+	 */
+	private String render(Object arg0, Object arg1)
+	{
+		StringBuilder builder = new StringBuilder(length + 16 * indexes.length);
+		for (int i = 0; i < indexes.length; i++)
+		{
+			builder.append(literals[i]);
+
+			String str = String.valueOf(indexes[i] == 0 ? arg0 : arg1);
+			int padding = Math.abs(widths[i]) - str.length();
+
+			if (widths[i] > 0)
+				pad(builder, padding);
+			builder.append(str);
+			if (widths[i] < 0)
+				pad(builder, padding);
+		}
+
+		return builder.append(literals[indexes.length])
+				.toString();
+	}
+
+	/**
+	 * Append spaces to a builder.
+	 *
+	 * @param builder the builder
+	 * @param count   the number of spaces, nothing if negative
+	 */
+	private static void pad(StringBuilder builder, int count)
+	{
+		for (int i = 0; i < count; i++)
+			builder.append(' ');
+	}
+
+	@Override
+	public String toString()
+	{
+		return template;
+	}
+}
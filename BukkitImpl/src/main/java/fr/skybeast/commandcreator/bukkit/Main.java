@@ -1,14 +1,20 @@
 package fr.skybeast.commandcreator.bukkit;
 
-import fr.skybeast.commandcreator.Command;
 import fr.skybeast.commandcreator.CommandCreationException;
 import fr.skybeast.commandcreator.CommandCreator;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.ToString;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
-import org.bukkit.command.TabCompleter;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.SimplePluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -16,13 +22,12 @@ import org.bukkit.plugin.java.JavaPlugin;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.*;
 
 /**
  * Created by SkyBeast on 11/02/17.
  */
-public final class Main extends JavaPlugin
+public final class Main extends JavaPlugin implements Listener
 {
 	/*
 	 * Implementation
@@ -38,31 +43,69 @@ public final class Main extends JavaPlugin
 					throw new CommandCreationException("Plugin given is not a Bukkit Plugin");
 
 				register(clazz, (Plugin) plugin);
+				CmdCompletionCache.clear(); //The commands changed
 			}
 			catch (ReflectiveOperationException e)
 			{
 				throw new CommandCreationException("Cannot create command", e);
 			}
 		}
-	};
 
-	/*
-	 * Executors
-	 */
-	private static final org.bukkit.command.CommandExecutor COMMAND_EXECUTOR = Main::dispatchCommand;
-	private static final TabCompleter TAB_COMPLETER = Main::completeTab;
+		@Override
+		protected void unregisterCommandsImpl(Object plugin)
+		{
+			if (!(plugin instanceof Plugin))
+				throw new CommandCreationException("Plugin given is not a Bukkit Plugin");
+
+			unregister((Plugin) plugin);
+		}
+
+		@Override
+		protected void unregisterCommandsImpl(Class<?> clazz)
+		{
+			unregister(clazz);
+		}
+
+		@Override
+		protected void registerSenderTypeImpl(Class<?> senderClass, String name)
+		{
+			if (!CommandSender.class.isAssignableFrom(senderClass))
+				throw new CommandCreationException("Sender type " + senderClass + " is not a Bukkit CommandSender");
+
+			CmdSenderType.register(senderClass, name);
+		}
+
+		@Override
+		protected void invalidateTabCompletesImpl()
+		{
+			CmdCompletionCache.invalidate(CmdCompletionCache.Source.SERIALIZERS);
+		}
+
+		@Override
+		protected void invalidatePermissionsImpl()
+		{
+			CmdPermissions.invalidate();
+		}
+
+		@Override
+		protected void invalidatePermissionsImpl(UUID player)
+		{
+			CmdPermissions.invalidate(player);
+		}
+	};
 
 	/*
 	 * Cached reflection objects
 	 */
 	private static final Constructor<PluginCommand> PLUGIN_COMMAND_CONSTRUCTOR;
 	private static final CommandMap COMMAND_MAP;
+	private static final Map<String, org.bukkit.command.Command> KNOWN_COMMANDS;
 
 
 	/*
 	 * Others
 	 */
-	private static final Map<PluginCommand, Cmd> BUKKIT_COMMANDS = new HashMap<>();
+	private static final Map<Plugin, List<Registration>> REGISTRATIONS = new HashMap<>(); //The commands, by plugin
 	@Getter
 	private static Main instance;
 
@@ -75,6 +118,10 @@ public final class Main extends JavaPlugin
 			Field commandMap = SimplePluginManager.class.getDeclaredField("commandMap");
 			commandMap.setAccessible(true);
 			COMMAND_MAP = (CommandMap) commandMap.get(Bukkit.getPluginManager());
+			Field knownCommands = SimpleCommandMap.class.getDeclaredField("knownCommands");
+			knownCommands.setAccessible(true);
+			//noinspection unchecked
+			KNOWN_COMMANDS = (Map<String, org.bukkit.command.Command>) knownCommands.get(COMMAND_MAP);
 		}
 		catch (ReflectiveOperationException e)
 		{
@@ -87,6 +134,19 @@ public final class Main extends JavaPlugin
 	{
 		instance = this;
 		CmdConfig.loadConfig();
+		CmdConfigWatcher.start();
+		CmdAsync.start();
+		CmdPlayerIndex.start(this);
+		CmdLocales.start(this);
+		CmdPermissions.start(this);
+		Bukkit.getPluginManager().registerEvents(this, this);
+	}
+
+	@Override
+	public void onDisable()
+	{
+		CmdConfigWatcher.stop();
+		CmdAsync.stop();
 	}
 
 	/**
@@ -99,53 +159,131 @@ public final class Main extends JavaPlugin
 	private static void register(Class<?> clazz, Plugin plugin)
 			throws ReflectiveOperationException
 	{
-		Command cmdAnnotation = clazz.getAnnotation(Command.class);
-
-		if (cmdAnnotation != null) //Class is a command compound
-			register(new CmdCompound(clazz, cmdAnnotation), plugin);
-		else //Class has command methods
-		{
-			for (Method method : clazz.getMethods())
-			{
-				Command annotation = method.getAnnotation(Command.class);
-				if (annotation != null)
-					register(new CmdMethod(method, annotation), plugin);
-			}
-		}
+		//The compound if the class is a command compound, else its command methods
+		for (Cmd cmd : CmdPlans.build(clazz))
+			register(cmd, clazz, plugin);
 	}
 
 	/**
 	 * Register a command into bukkit.
 	 *
 	 * @param cmd    the command
+	 * @param clazz  the class of the command
 	 * @param plugin the plugin of the command
 	 * @throws ReflectiveOperationException reflection-related method
 	 */
-	private static void register(Cmd cmd, Plugin plugin)
+	private static void register(Cmd cmd, Class<?> clazz, Plugin plugin)
 			throws ReflectiveOperationException
 	{
+		CmdConfig.register(cmd); //Render the usages
+
 		PluginCommand command = PLUGIN_COMMAND_CONSTRUCTOR.newInstance(cmd.getLabel(), plugin);
 		command.getAliases().addAll(Arrays.asList(cmd.getAliases()));
-		command.setExecutor(COMMAND_EXECUTOR);
-		command.setTabCompleter(TAB_COMPLETER);
+		CustomExecutor executor = new CustomExecutor(cmd); //Bound to the command: no lookup on dispatch
+		command.setExecutor(executor);
+		command.setTabCompleter(executor);
 		COMMAND_MAP.register(plugin.getDescription().getName(), command);
-		BUKKIT_COMMANDS.put(command, cmd);
+
+		synchronized (REGISTRATIONS)
+		{
+			REGISTRATIONS.computeIfAbsent(plugin, p -> new ArrayList<>()).add(new Registration(cmd, clazz, command));
+		}
+	}
+
+	/**
+	 * Unregister the commands of a plugin, and release its classes.
+	 *
+	 * @param plugin the plugin
+	 */
+	private static void unregister(Plugin plugin)
+	{
+		List<Registration> registrations;
+		synchronized (REGISTRATIONS)
+		{
+			registrations = REGISTRATIONS.remove(plugin);
+		}
+
+		if (registrations != null)
+			unregister(registrations);
+
+		//The caches keyed by class would keep the class loader of the plugin alive
+		ClassLoader loader = plugin.getClass().getClassLoader();
+		CmdSerializers.release(loader);
+		CmdChoiceLists.release(loader);
+		CmdSenderType.release(loader);
+	}
+
+	/**
+	 * Unregister the commands registered from a class.
+	 *
+	 * @param clazz the class
+	 */
+	private static void unregister(Class<?> clazz)
+	{
+		List<Registration> registrations = new ArrayList<>();
+		synchronized (REGISTRATIONS)
+		{
+			for (List<Registration> list : REGISTRATIONS.values())
+			{
+				for (Iterator<Registration> it = list.iterator(); it.hasNext(); )
+				{
+					Registration registration = it.next();
+					if (registration.clazz == clazz)
+					{
+						registrations.add(registration);
+						it.remove();
+					}
+				}
+			}
+			REGISTRATIONS.values().removeIf(List::isEmpty);
+		}
+
+		unregister(registrations);
+	}
+
+	/**
+	 * Unregister commands from bukkit, and drop what was cached for them.
+	 *
+	 * @param registrations the registrations of the commands
+	 */
+	private static void unregister(List<Registration> registrations)
+	{
+		if (registrations.isEmpty())
+			return;
+
+		List<Cmd> roots = new ArrayList<>();
+		for (Registration registration : registrations)
+		{
+			registration.command.unregister(COMMAND_MAP);
+			KNOWN_COMMANDS.values().removeIf(command -> command == registration.command); //Label, aliases, fallback
+			roots.add(registration.cmd);
+		}
+
+		CmdConfig.unregister(roots);
+		CmdCompletionCache.clear();
+		CmdPermissions.invalidate();
+		CmdLocales.clear();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPluginDisable(PluginDisableEvent event)
+	{
+		unregister(event.getPlugin());
 	}
 
 	/**
 	 * Dispatch a command.
 	 *
 	 * @param sender  the sender
+	 * @param cmd     the command
 	 * @param command the bukkit command
 	 * @param label   the label of the command
 	 * @param args    the args of the command
 	 * @return true if the command was dispatched correctly
 	 */
-	private static boolean dispatchCommand(CommandSender sender, org.bukkit.command.Command command,
+	private static boolean dispatchCommand(CommandSender sender, Cmd cmd, org.bukkit.command.Command command,
 	                                       String label, String[] args)
 	{
-		Cmd cmd = getCommand(command);
-
 		try
 		{
 			return cmd.dispatch(sender, args, 0, label);
@@ -160,24 +298,6 @@ public final class Main extends JavaPlugin
 		}
 	}
 
-	/**
-	 * Get a command from a bukkit command.
-	 *
-	 * @param command the bukkit command
-	 * @return the command
-	 */
-	private static Cmd getCommand(org.bukkit.command.Command command)
-	{
-		if (!(command instanceof PluginCommand))
-			throw new IllegalArgumentException("Cannot find command " + command);
-
-		Cmd cmd = BUKKIT_COMMANDS.get(command);
-		if (cmd == null)
-			throw new IllegalArgumentException("Cannot find command " + command);
-
-		return cmd;
-	}
-
 	/**
 	 * Check permission of a sender.
 	 * @param sender the sender
@@ -199,17 +319,48 @@ public final class Main extends JavaPlugin
 	/**
 	 * Tab-complete a command.
 	 *
-	 * @param sender  the sender
-	 * @param command the bukkit command
-	 * @param label   the label of the command
-	 * @param args    the args of the command
+	 * @param sender the sender
+	 * @param cmd    the command
+	 * @param label  the label of the command
+	 * @param args   the args of the command
 	 * @return the list of tab-completes
 	 */
-	private static List<String> completeTab(CommandSender sender, org.bukkit.command.Command command,
+	private static List<String> completeTab(CommandSender sender, Cmd cmd,
 	                                        String label, String[] args)
 	{
-		Cmd cmd = getCommand(command);
 		List<String> tabCompletes = cmd.completeTab(sender, args, 0);
 		return tabCompletes == null ? Collections.emptyList() : tabCompletes;
 	}
+
+	@AllArgsConstructor
+	private static class Registration
+	{
+		final Cmd cmd; //The root command
+		final Class<?> clazz; //The class the command was registered from
+		final PluginCommand command; //The bukkit command
+	}
+
+	@ToString
+	private static class CustomExecutor implements TabExecutor
+	{
+		final Cmd cmd;
+
+		CustomExecutor(Cmd cmd)
+		{
+			this.cmd = cmd;
+		}
+
+		@Override
+		public boolean onCommand(CommandSender sender, org.bukkit.command.Command command, String label, String[] args)
+		{
+			return dispatchCommand(sender, cmd, command, label, args);
+		}
+
+		@Override
+		public List<String> onTabComplete(CommandSender sender, org.bukkit.command.Command command, String label,
+		                                  String[] args)
+		{
+			return completeTab(sender, cmd, label, args);
+		}
+	}
 }
@@ -1,12 +1,10 @@
 package fr.skybeast.commandcreator.bungee;
 
-import fr.skybeast.commandcreator.Command;
-import fr.skybeast.commandcreator.CommandSerializationException;
+import fr.skybeast.commandcreator.CommandPlan;
 import lombok.Getter;
 import net.md_5.bungee.api.CommandSender;
 
-import java.lang.reflect.Method;
-import java.util.List;
+import java.util.*;
 
 /**
  * Created by SkyBeast on 11/02/17.
@@ -19,21 +17,54 @@ abstract class Cmd
 	protected String[] permissions;
 	protected String[] aliases;
 	protected String description;
+	protected String[] flattenedPermissions; //The permissions of the command and of the compounds above it
+	protected CmdCompound parent; //The compound above the command -- null if root
 
 	/**
-	 * Init the fields with annotation's parameters.
-	 * If label is missing, default to fallbackLabel.
+	 * Init the fields with the plan of the command.
 	 *
-	 * @param annotation    the @Command annotation
-	 * @param fallbackLabel the fallback label
+	 * @param plan the plan of the command
 	 */
-	protected Cmd(Command annotation, String fallbackLabel)
+	protected Cmd(CommandPlan plan)
 	{
-		label = annotation.value();
-		if (label.isEmpty()) label = fallbackLabel;
-		permissions = annotation.permissions();
-		aliases = annotation.aliases();
-		description = annotation.description();
+		label = plan.getLabel();
+		permissions = plan.getPermissions();
+		aliases = plan.getAliases();
+		description = plan.getDescription();
+		flattenedPermissions = permissions;
+	}
+
+	/**
+	 * Inherit the permissions of the compound above the command.
+	 *
+	 * @param inherited the flattened permissions of the compound
+	 */
+	void inheritPermissions(String[] inherited)
+	{
+		Set<String> flattened = new LinkedHashSet<>(Arrays.asList(inherited));
+		Collections.addAll(flattened, permissions);
+		flattenedPermissions = flattened.toArray(new String[flattened.size()]);
+	}
+
+	/**
+	 * Count a successful dispatch of the command in the rankings of the compounds above it.
+	 */
+	protected void recordPath()
+	{
+		for (Cmd cmd = this; cmd.parent != null; cmd = cmd.parent)
+			cmd.parent.getRanking().use(cmd.label);
+	}
+
+	/**
+	 * Check whether a sender has the permissions of the command, and of the compounds above it.
+	 * The decisions are cached, see {@link CmdPermissions}.
+	 *
+	 * @param sender the sender
+	 * @return true if all permissions conditions were met
+	 */
+	protected boolean hasPermission(CommandSender sender)
+	{
+		return flattenedPermissions.length == 0 || CmdPermissions.check(sender, this);
 	}
 
 	/**
@@ -60,21 +91,17 @@ abstract class Cmd
 	abstract List<String> completeTab(CommandSender sender, String[] cmd, int loc);
 
 	/**
-	 * Get the simple usage of the command.
-	 *
-	 * @return the simple usage of the command
-	 */
-	abstract String getSimpleUsage();
-
-	/**
-	 * Get the simple usage of the command.
+	 * Render the usages of the command, and of its sub commands.
 	 *
-	 * @return the simple usage of the command
+	 * @param messages the messages to render the usages from
+	 * @param usages   the usages of the command nodes, receiving the rendered ones
+	 * @return the usages of the command
 	 */
-	abstract String[] getParametersUsage();
+	abstract CmdUsage renderUsage(CmdMessages messages, Map<Cmd, CmdUsage> usages);
 
 	/**
-	 * Show help for current method.
+	 * Show help for current method, without what the sender cannot run.
+	 * The help is rendered once per path and visibility, see {@link CmdHelpCache}.
 	 *
 	 * @param sender    the sender
 	 * @param cmd       the arguments
@@ -82,6 +109,45 @@ abstract class Cmd
 	 * @param rootLabel the original label
 	 */
 	protected void showHelp(CommandSender sender, String[] cmd, int loc, String rootLabel)
+	{
+		for (String line : CmdConfig.getRendering(sender).getHelp(this, cmd, loc, rootLabel, getVisibility(sender)))
+			sender.sendMessage(line);
+	}
+
+	/**
+	 * Get the entries of the help visible to a sender.
+	 *
+	 * @param sender the sender
+	 * @return the visibility bitmap of the entries, see {@link CmdPermissions#visibility}
+	 */
+	protected long[] getVisibility(CommandSender sender)
+	{
+		return CmdPermissions.ALL_VISIBLE; //The parameters are always visible
+	}
+
+	/**
+	 * Get the simple usage of the command, as seen by a sender.
+	 *
+	 * @param rendering  the snapshot to render the usage from
+	 * @param visibility the visibility bitmap of the entries of the help
+	 * @return the simple usage
+	 */
+	String getSimpleUsage(CmdRendering rendering, long[] visibility)
+	{
+		return rendering.getUsage(this).getSimpleUsage(); //The parameters are always visible
+	}
+
+	/**
+	 * Render the help for current method.
+	 *
+	 * @param rendering  the snapshot to render the help from
+	 * @param cmd        the arguments
+	 * @param loc        the location of the argument to dispatch
+	 * @param rootLabel  the original label
+	 * @param visibility the visibility bitmap of the entries of the help
+	 * @return the lines of the help
+	 */
+	String[] renderHelp(CmdRendering rendering, String[] cmd, int loc, String rootLabel, long[] visibility)
 	{
 		StringBuilder builder = new StringBuilder();
 
@@ -95,62 +161,61 @@ abstract class Cmd
 						.append(' ');
 		}
 
-		String simpleUsage = builder.append(getSimpleUsage())
+		String simpleUsage = builder.append(getSimpleUsage(rendering, visibility))
 				.toString();
 
-		sender.sendMessage(String.format(CmdConfig.getHelpHeader(), simpleUsage));
+		String[] parametersUsage = rendering.getUsage(this).getParametersUsage();
+		List<String> help = new ArrayList<>(parametersUsage.length + 1);
+		help.add(rendering.getMessages().getHelpHeader().format(simpleUsage));
+
+		CmdTemplate entry = rendering.getMessages().getHelpEntry();
+		for (int i = 0; i < parametersUsage.length; i++)
+			if (CmdPermissions.isVisible(visibility, i))
+				help.add(entry.format(parametersUsage[i]));
 
-		for (String usage : getParametersUsage())
-			sender.sendMessage(String.format(CmdConfig.getHelpEntry(), usage));
+		return help.toArray(new String[help.size()]);
 	}
 
 	/**
-	 * Show message for invalid sender type.
+	 * Show message suggesting the closest name of a mistyped argument.
 	 *
-	 * @param sender the sender
+	 * @param sender     the sender
+	 * @param suggestion the closest name, or null if none
 	 */
-	protected void invalidSenderTypeMessage(CommandSender sender)
+	protected void suggestionMessage(CommandSender sender, String suggestion)
 	{
-		CmdSenderType senderType = CmdSenderType.get(sender.getClass());
-		String name = senderType == null ? CmdConfig.getMessage("senderTypes.unknown") : senderType.getName();
-
-		sender.sendMessage(String.format(CmdConfig.getInvalidSenderTypeMessage(), name));
+		if (suggestion != null)
+			sender.sendMessage(CmdConfig.getMessages(sender).getDidYouMeanMessage().format(suggestion));
 	}
 
 	/**
-	 * Show message for lack of permission(s).
+	 * Show message for invalid sender type.
 	 *
 	 * @param sender the sender
 	 */
-	protected void noPermissionMessage(CommandSender sender)
+	protected void invalidSenderTypeMessage(CommandSender sender)
 	{
-		sender.sendMessage(CmdConfig.getNoPermissionMessage());
+		sender.sendMessage(CmdConfig.getMessages(sender).getInvalidSenderTypeMessage(CmdSenderType.get(sender)));
 	}
 
 	/**
-	 * Show message for serialization error.
+	 * Show message for lack of permission(s).
 	 *
 	 * @param sender the sender
-	 * @param err    the serialization error
 	 */
-	protected void showError(CommandSender sender, CommandSerializationException err)
+	protected void noPermissionMessage(CommandSender sender)
 	{
-		sender.sendMessage(String.format(CmdConfig.getSerializationError(), err.getMessage()));
+		sender.sendMessage(CmdConfig.getMessages(sender).getNoPermissionMessage());
 	}
 
 	/**
-	 * Dispatch parameters to method.
+	 * Show message for serialization error.
 	 *
-	 * @param method     the method
-	 * @param parameters the parameters
-	 * @return what the method returned, or true if return type is void
-	 * @throws ReflectiveOperationException reflection-related method
+	 * @param sender the sender
+	 * @param err    the message of the serialization error
 	 */
-	protected boolean dispatchToMethod(Method method, Object... parameters)
-			throws ReflectiveOperationException
+	protected void showError(CommandSender sender, String err)
 	{
-		//Return type can be boolean or void
-		Object ret = method.invoke(null, parameters);
-		return ret == null || (Boolean) ret;
+		sender.sendMessage(CmdConfig.getMessages(sender).getSerializationError().format(err));
 	}
 }
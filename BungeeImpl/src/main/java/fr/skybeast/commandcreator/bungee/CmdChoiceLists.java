@@ -1,5 +1,6 @@
 package fr.skybeast.commandcreator.bungee;
 
+import fr.skybeast.commandcreator.ChoiceList;
 import fr.skybeast.commandcreator.CommandCreationException;
 
 import java.util.HashMap;
@@ -10,7 +11,7 @@ import java.util.Map;
  */
 final class CmdChoiceLists
 {
-	private static final Map<Class<?>, Map<String, Object>> ENUMS = new HashMap<>();
+	private static final Map<Class<?>, ChoiceList<?>> ENUMS = new HashMap<>();
 
 	/**
 	 * Get a choice list from an enum.
@@ -19,17 +20,27 @@ final class CmdChoiceLists
 	 * @return the choice list
 	 * @throws ReflectiveOperationException reflection-related method
 	 */
-	static Map<String, Object> getFromEnum(Class<?> clazz)
+	static ChoiceList<?> getFromEnum(Class<?> clazz)
 			throws ReflectiveOperationException
 	{
-		Map<String, Object> map = ENUMS.get(clazz);
-		if (map == null)
+		ChoiceList<?> choice = ENUMS.get(clazz);
+		if (choice == null)
 		{
-			map = iterate(clazz);
-			ENUMS.put(clazz, map);
+			choice = iterate(clazz);
+			ENUMS.put(clazz, choice);
 		}
 
-		return map;
+		return choice;
+	}
+
+	/**
+	 * Forget the choice lists of the enums of a class loader, such as the one of a disabled plugin.
+	 *
+	 * @param loader the class loader
+	 */
+	static void release(ClassLoader loader)
+	{
+		ENUMS.keySet().removeIf(clazz -> clazz.getClassLoader() == loader);
 	}
 
 	/**
@@ -39,17 +50,14 @@ final class CmdChoiceLists
 	 * @return the enum constants as a choice list
 	 * @throws ReflectiveOperationException reflection-related method
 	 */
-	private static Map<String, Object> iterate(Class<?> clazz)
+	@SuppressWarnings("unchecked")
+	private static ChoiceList<?> iterate(Class<?> clazz)
 			throws ReflectiveOperationException
 	{
 		if (!clazz.isEnum())
 			throw new CommandCreationException(clazz + " is not an enum, so cannot be used as a ChoiceList");
 
-		Map<String, Object> map = new HashMap<>();
-		for (Object o : clazz.getEnumConstants())
-			map.put(o.toString(), o);
-
-		return map;
+		return ChoiceList.ofEnum(clazz.asSubclass(Enum.class));
 	}
 
 	private CmdChoiceLists() {}
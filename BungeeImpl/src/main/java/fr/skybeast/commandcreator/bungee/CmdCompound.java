@@ -1,18 +1,17 @@
 package fr.skybeast.commandcreator.bungee;
 
-import fr.skybeast.commandcreator.Command;
 import fr.skybeast.commandcreator.CommandCreationException;
-import fr.skybeast.commandcreator.CommandExecutor;
+import fr.skybeast.commandcreator.CommandPlan;
 import lombok.Getter;
 import lombok.ToString;
 import net.md_5.bungee.api.CommandSender;
 
-import java.lang.reflect.Method;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 /**
- * A compound of sub commands.
+ * A compound of sub commands, built from its plan.
  */
 @ToString
 @Getter
@@ -23,86 +22,50 @@ final class CmdCompound extends Cmd
 	/*
 	 * Default executor
 	 */
-	private CmdSenderType defaultExecutorSenderType; //The sender type of the default executor
-	private Method defaultExecutor;
+	private Predicate<CommandSender> defaultExecutorSenderCheck; //The check of the senders of the default executor
+	private final CommandPlan defaultExecutor; //The plan of the default executor -- null if none
+	private CmdInvoker defaultExecutorInvoker; //The invoker of the default executor
 
 	/*
 	 * Sub commands
 	 */
-	private final Map<String, Cmd> subCommands = new HashMap<>(); //The map of sub commands
-	private final Map<String, Cmd> aliasMap = new HashMap<>(); //The map of aliases
-
-	/*
-	 * Messages
-	 */
-	@Getter
-	private final String[] parametersUsage; //All the usages of the parameters
-	@Getter
-	private final String simpleUsage; //The usages of this command
+	private final CmdIndex subCommands; //The index of sub commands, by label and alias
+	private final CmdRanking ranking = new CmdRanking(); //The popularity of the sub commands, counted once dispatched
 
 	/* --------------------- */
 	/* ---- FIELD SETUP ---- */
 	/* --------------------- */
 
-	CmdCompound(Class<?> clazz, Command annotation)
-			throws ReflectiveOperationException
-	{
-		super(annotation, lowerFirst(clazz.getSimpleName())); //Call mama
-
-		//Find sub commands in methods
-		iterate(clazz.getMethods());
-
-		//Find sub commands in inner classes
-		iterate(clazz.getClasses());
-
-		//Setup usages
-		simpleUsage = setupSimpleUsage();
-		parametersUsage = setupParametersUsage();
-	}
-
-	/**
-	 * Lower the first letter of a String.
-	 *
-	 * @param str the String
-	 * @return the new String
-	 */
-	private static String lowerFirst(String str)
-	{
-		char ch = Character.toLowerCase(str.charAt(0));
-		return ch + str.substring(1, str.length());
-	}
-
 	/**
-	 * Iterate through methods, and add sub commands.
+	 * Create a new CmdCompound.
 	 *
-	 * @param methods the methods
-	 * @throws ReflectiveOperationException reflection-related method
+	 * @param plan     the plan of the compound
+	 * @param invokers the invokers of the methods of the plan, by index
+	 * @throws ReflectiveOperationException if a custom serializer cannot be created
 	 */
-	private void iterate(Method[] methods)
+	CmdCompound(CommandPlan plan, IntFunction<CmdInvoker> invokers)
 			throws ReflectiveOperationException
 	{
-		for (Method method : methods)
-		{
-			//Default executor
-			if (method.getAnnotation(CommandExecutor.class) != null)
-			{
-				if (defaultExecutor != null)
-					throw new CommandCreationException("Cannot have two CommandExecutor per command");
+		super(plan); //Call mama
 
-				if (method.getParameterCount() != 1)
-					throw new CommandCreationException("A CommandExecutor should only have one argument");
+		defaultExecutor = plan.getExecutor();
+		if (defaultExecutor != null)
+		{
+			validateDefaultExecutor();
+			defaultExecutorInvoker = invokers.apply(defaultExecutor.getIndex());
+		}
 
-				defaultExecutor = method;
-				validateDefaultExecutor();
-				continue;
-			}
+		List<Cmd> found = new ArrayList<>();
+		for (CommandPlan subCommand : plan.getSubCommands())
+			found.add(CmdPlans.build(subCommand, invokers));
 
-			//Sub command
-			Command subAnnotation = method.getAnnotation(Command.class);
-			if (subAnnotation == null)
-				continue;
+		subCommands = new CmdIndex(found);
 
-			addCommand(new CmdMethod(method, subAnnotation));
+		//Flatten the permissions of this compound into its sub commands
+		for (Cmd cmd : found)
+		{
+			cmd.parent = this;
+			cmd.inheritPermissions(permissions);
 		}
 	}
 
@@ -111,61 +74,41 @@ final class CmdCompound extends Cmd
 	 */
 	private void validateDefaultExecutor()
 	{
-		defaultExecutorSenderType = CmdSenderType.get(defaultExecutor.getParameterTypes()[0]);
-		if (defaultExecutorSenderType == null)
-			throw new CommandCreationException("Command sender type " + defaultExecutor.getParameterTypes()[0] +
+		defaultExecutorSenderCheck = CmdSenderType.checkOf(defaultExecutor.getSenderType());
+		if (defaultExecutorSenderCheck == null)
+			throw new CommandCreationException("Command sender type " + defaultExecutor.getSenderType() +
 					" cannot be resolved on method " + defaultExecutor);
 	}
 
-	/**
-	 * Add a command to the command maps.
-	 *
-	 * @param cmd the command
-	 */
-	private void addCommand(Cmd cmd)
-	{
-		subCommands.put(cmd.getLabel(), cmd);
-		for (String al : cmd.getAliases())
-			aliasMap.put(al, cmd);
-	}
+	/* ---------------- */
+	/* ---- USAGES ---- */
+	/* ---------------- */
 
-	/**
-	 * Iterate through classes, and add sub commands.
-	 *
-	 * @param classes the classes
-	 * @throws ReflectiveOperationException reflection-related method
-	 */
-	private void iterate(Class[] classes)
-			throws ReflectiveOperationException
+	@Override
+	CmdUsage renderUsage(CmdMessages messages, Map<Cmd, CmdUsage> usages)
 	{
-		for (Class<?> inner : classes)
-		{
-			//Sub command
-			Command subAnnotation = inner.getAnnotation(Command.class);
-			if (subAnnotation == null)
-				continue;
-
-			addCommand(new CmdCompound(inner, subAnnotation));
-		}
+		CmdUsage usage = new CmdUsage(renderSimpleUsage(messages, subCommands.getCommands()),
+				renderParametersUsage(messages, usages));
+		usages.put(this, usage);
+		return usage;
 	}
 
 	/**
-	 * Setup the simple usage.
+	 * Render the simple usage.
 	 *
+	 * @param messages the messages
+	 * @param commands the sub commands to list
 	 * @return the simple usage
 	 */
-	private String setupSimpleUsage()
+	private String renderSimpleUsage(CmdMessages messages, List<Cmd> commands)
 	{
-		Collection<Cmd> commands = subCommands.values();
-
 		if (commands.isEmpty())
 			return label;
 
 		if (commands.size() == 1)
-			//noinspection OptionalGetWithoutIsPresent
 			return label + ' '
-					+ commands.stream().findFirst().get().getLabel()
-					+ CmdConfig.getCompoundSuffix();
+					+ commands.get(0).getLabel()
+					+ messages.getCompoundSuffix();
 
 		int i = 0;
 		StringBuilder b2 = new StringBuilder();
@@ -173,40 +116,42 @@ final class CmdCompound extends Cmd
 		{
 			b2.append(cmd.getLabel());
 			if (i != commands.size() - 1)
-				b2.append(CmdConfig.getSeparator());
+				b2.append(messages.getSeparator());
 			i++;
 		}
 
-		return label + ' ' + String.format(CmdConfig.getSimpleUsageCompound(), b2) + ' '
-				+ CmdConfig.getCompoundSuffix();
+		return label + ' ' + messages.getSimpleUsageCompound().format(b2) + ' '
+				+ messages.getCompoundSuffix();
 	}
 
 	/**
-	 * Setup the parameters usage.
+	 * Render the parameters usage, and the usages of the sub commands.
 	 *
+	 * @param messages the messages
+	 * @param usages   the usages of the command nodes, receiving the rendered ones
 	 * @return the parameters usage
 	 */
-	private String[] setupParametersUsage()
+	private String[] renderParametersUsage(CmdMessages messages, Map<Cmd, CmdUsage> usages)
 	{
-		Collection<Cmd> commands = subCommands.values();
+		List<Cmd> commands = subCommands.getCommands();
 
 		if (commands.isEmpty())
 			return EMPTY_STRING_ARRAY;
 
-		List<String> usages = new ArrayList<>();
+		List<String> parametersUsage = new ArrayList<>();
 
 		commands.forEach(
 				cmd ->
 				{
-					StringBuilder builder = new StringBuilder(cmd.getSimpleUsage());
+					StringBuilder builder = new StringBuilder(cmd.renderUsage(messages, usages).getSimpleUsage());
 					String desc = cmd.getDescription();
 					if (!desc.isEmpty())
-						builder.append(CmdConfig.getDescriptionSeparator()).append(desc);
+						builder.append(messages.getDescriptionSeparator()).append(desc);
 
-					usages.add(builder.toString());
+					parametersUsage.add(builder.toString());
 				});
 
-		return usages.toArray(new String[usages.size()]);
+		return parametersUsage.toArray(new String[parametersUsage.size()]);
 	}
 
 	/* ------------------ */
@@ -217,6 +162,11 @@ final class CmdCompound extends Cmd
 	public boolean dispatch(CommandSender sender, String[] cmd, int loc, String rootLabel)
 			throws ReflectiveOperationException
 	{
+		//Command called is a sub command: it checks the permissions of this compound too
+		Cmd command = cmd.length == loc ? null : subCommands.get(cmd[loc]);
+		if (command != null)
+			return command.dispatch(sender, cmd, loc + 1, rootLabel);
+
 		if (!checkPrerequisites(sender))
 			return false;
 
@@ -226,13 +176,24 @@ final class CmdCompound extends Cmd
 			//Use default executor
 			if (defaultExecutor != null)
 			{
-				if (!defaultExecutorSenderType.isInstance(sender))
+				if (!defaultExecutorSenderCheck.test(sender))
 				{
 					invalidSenderTypeMessage(sender);
 					return false;
 				}
 
-				return dispatchToMethod(defaultExecutor, sender);
+				if (defaultExecutor.isAsync())
+				{
+					recordPath();
+					CmdAsync.run(defaultExecutorInvoker, new Object[]{sender}, CmdInvoker.NO_PRIMITIVES, sender, label,
+							defaultExecutor.getTimeout());
+					return true;
+				}
+
+				boolean dispatched = defaultExecutorInvoker.invoke(new Object[]{sender}, CmdInvoker.NO_PRIMITIVES);
+				if (dispatched)
+					recordPath();
+				return dispatched;
 			}
 
 			//Or show help
@@ -240,20 +201,41 @@ final class CmdCompound extends Cmd
 			return false;
 		}
 
-		//Command called is a sub command
-		String string = cmd[loc];
-		Cmd command = subCommands.get(string);
-		if (command == null)
-			command = aliasMap.get(string);
+		//Sub command not found
+		showHelp(sender, cmd, loc, rootLabel);
+		suggestionMessage(sender, subCommands.suggest(cmd[loc]));
+		return false;
+	}
 
-		if (command == null)
-		{
-			showHelp(sender, cmd, loc, rootLabel);
-			return false;
-		}
+	@Override
+	String getSimpleUsage(CmdRendering rendering, long[] visibility)
+	{
+		if (visibility == CmdPermissions.ALL_VISIBLE)
+			return super.getSimpleUsage(rendering, visibility);
+
+		//Only list the sub commands the sender can run
+		List<Cmd> commands = subCommands.getCommands();
+		List<Cmd> visible = new ArrayList<>(commands.size());
+		for (int i = 0; i < commands.size(); i++)
+			if (CmdPermissions.isVisible(visibility, i))
+				visible.add(commands.get(i));
+
+		return renderSimpleUsage(rendering.getMessages(), visible);
+	}
+
+	@Override
+	protected long[] getVisibility(CommandSender sender)
+	{
+		return CmdPermissions.visibility(sender, this, subCommands.getCommands()); //The entries are the sub commands
+	}
 
-		//Dispatch to the sub command
-		return command.dispatch(sender, cmd, loc + 1, rootLabel);
+	@Override
+	void inheritPermissions(String[] inherited)
+	{
+		super.inheritPermissions(inherited);
+
+		for (Cmd cmd : subCommands.getCommands())
+			cmd.inheritPermissions(flattenedPermissions);
 	}
 
 	/**
@@ -264,7 +246,7 @@ final class CmdCompound extends Cmd
 	 */
 	private boolean checkPrerequisites(CommandSender sender)
 	{
-		if (!Main.checkPermission(sender, permissions))
+		if (!hasPermission(sender))
 		{
 			noPermissionMessage(sender);
 			return false;
@@ -279,39 +261,15 @@ final class CmdCompound extends Cmd
 	@Override
 	public List<String> completeTab(CommandSender sender, String[] cmd, int loc)
 	{
-		if (!Main.checkPermission(sender, permissions))
-			return null;
-
 		String str = cmd[loc];
-		if (cmd.length == loc + 1)
-		{
-			if (str.isEmpty())
-				return new ArrayList<>(subCommands.keySet());
+		if (cmd.length == loc + 1) //The sub commands need the permissions of this compound
+			return hasPermission(sender) ? ranking.top(subCommands.complete(str, getVisibility(sender)),
+					CmdConfig.getMaxTabCompletes()) : null;
 
-			return subCommands.keySet().stream()
-					.filter(label -> label.startsWith(str))
-					.sorted()
-					.collect(Collectors.toList());
-		}
-
-		Cmd c = getCommand(str);
+		Cmd c = subCommands.get(str);
 		if (c == null)
 			return null;
 
 		return c.completeTab(sender, cmd, loc + 1);
 	}
-
-	/**
-	 * Get a sub command from its label.
-	 *
-	 * @param label the label of the sub command
-	 * @return the command or null if not found
-	 */
-	private Cmd getCommand(String label)
-	{
-		Cmd command = subCommands.get(label);
-		if (command == null)
-			return aliasMap.get(label);
-		return command;
-	}
 }
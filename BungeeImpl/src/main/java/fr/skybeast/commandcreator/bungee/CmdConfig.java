@@ -1,5 +1,7 @@
 package fr.skybeast.commandcreator.bungee;
 
+import fr.skybeast.commandcreator.ParseFailure;
+import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.config.Configuration;
 import net.md_5.bungee.config.ConfigurationProvider;
 import net.md_5.bungee.config.YamlConfiguration;
@@ -8,117 +10,225 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Created by SkyBeast on 13/02/17.
  */
 final class CmdConfig
 {
-	private static final File FILE = new File(Main.getInstance().getDataFolder(), "messages.yml");
-	private static Configuration config;
+	static final File FILE = new File(Main.getInstance().getDataFolder(), "messages.yml");
+	private static final Pattern LOCALE_FILE = Pattern.compile("messages_([\\w-]+)\\.yml"); //Such as messages_de.yml
+	private static final Object LOCK = new Object(); //Orders the reloads and the registrations
+	private static volatile CmdLocalization localization; //The messages and usages of every locale, swapped at once
 
 	/**
-	 * Load the config.
+	 * Load the config and the locale files, and render the usages of the registered commands from them.
+	 * The new messages and usages are published at once.
 	 */
 	static void loadConfig()
 	{
-		try
-		{
-			if (!FILE.exists())
-			{
-				InputStream link = (CmdConfig.class.getResourceAsStream("/messages.yml"));
-				//noinspection ResultOfMethodCallIgnored
-				FILE.getParentFile().mkdirs();
-
-				Files.copy(link, FILE.getAbsoluteFile().toPath());
-			}
+		Map<String, CmdMessages> locales = new HashMap<>();
+		CmdMessages messages = readMessages(locales);
 
-			config = ConfigurationProvider.getProvider(YamlConfiguration.class).load(FILE);
-		}
-		catch (IOException e)
+		synchronized (LOCK)
 		{
-			throw new RuntimeException("Cannot load messages", e);
+			localization = localization == null ? CmdLocalization.of(messages, locales) :
+					localization.withMessages(messages, locales);
 		}
 	}
 
 	/**
-	 * Get a message from its key.
+	 * Render the usages of a newly registered command.
 	 *
-	 * @param key the key
-	 * @return the message
+	 * @param root the root command
 	 */
-	static String getMessage(String key)
+	static void register(Cmd root)
 	{
-		return config.getString(key, key);
+		synchronized (LOCK)
+		{
+			localization = localization.withRoot(root);
+		}
 	}
 
-	/*
-	 * Messages
+	/**
+	 * Forget the usages of unregistered commands.
+	 *
+	 * @param roots the root commands
 	 */
-
-	static String getHelpHeader()
+	static void unregister(Collection<Cmd> roots)
 	{
-		return getMessage("helpHeader");
+		synchronized (LOCK)
+		{
+			localization = localization.withoutRoots(roots);
+		}
 	}
 
-	static String getHelpEntry()
+	/**
+	 * Get the current snapshot of the messages and usages of messages.yml.
+	 *
+	 * @return the snapshot
+	 */
+	static CmdRendering getRendering()
 	{
-		return getMessage("helpEntry");
+		return localization.getDefaults();
 	}
 
-	static String getOptional()
+	/**
+	 * Get the current snapshot of the messages and usages in the locale of a sender.
+	 *
+	 * @param sender the sender
+	 * @return the snapshot
+	 */
+	static CmdRendering getRendering(CommandSender sender)
 	{
-		return getMessage("optional");
+		return CmdLocales.get(sender, localization);
 	}
 
-	static String getSimpleUsageCompound()
+	/**
+	 * Get the current messages in the locale of a sender.
+	 *
+	 * @param sender the sender
+	 * @return the messages
+	 */
+	static CmdMessages getMessages(CommandSender sender)
 	{
-		return getMessage("simpleUsageCompound");
+		return getRendering(sender).getMessages();
 	}
 
-	static String getSimpleUsageRequired()
+	/**
+	 * Check if a file of the data folder is part of the config.
+	 *
+	 * @param name the name of the file
+	 * @return true if the file is messages.yml or a locale file
+	 */
+	static boolean isConfigFile(String name)
 	{
-		return getMessage("simpleUsageRequired");
+		return name.equals(FILE.getName()) || LOCALE_FILE.matcher(name).matches();
 	}
 
-	static String getSimpleUsageOptional()
+	/**
+	 * Read the messages from the config, and from the locale files.
+	 * A locale file falls back to the files of its parent locales, then to messages.yml.
+	 *
+	 * @param locales the messages of the locale files, by lower case locale, receiving the read ones
+	 * @return the messages of messages.yml
+	 */
+	private static CmdMessages readMessages(Map<String, CmdMessages> locales)
 	{
-		return getMessage("simpleUsageOptional");
-	}
+		try
+		{
+			if (!FILE.exists())
+			{
+				InputStream link = (CmdConfig.class.getResourceAsStream("/messages.yml"));
+				//noinspection ResultOfMethodCallIgnored
+				FILE.getParentFile().mkdirs();
 
-	static String getCompoundSuffix()
-	{
-		return getMessage("compoundSuffix");
-	}
+				Files.copy(link, FILE.getAbsoluteFile().toPath());
+			}
 
-	static String getSeparator()
-	{
-		return getMessage("separator");
-	}
+			ConfigurationProvider provider = ConfigurationProvider.getProvider(YamlConfiguration.class);
+			Configuration config = provider.load(FILE);
+			Configuration defaults = provider.load(CmdConfig.class.getResourceAsStream("/messages.yml"));
+
+			Map<String, Configuration> files = new HashMap<>(); //The locale files, by lower case locale
+			File[] found = FILE.getParentFile().listFiles();
+			if (found != null)
+				for (File file : found)
+				{
+					Matcher matcher = LOCALE_FILE.matcher(file.getName());
+					if (matcher.matches())
+						files.put(CmdLocalization.normalize(matcher.group(1)), provider.load(file));
+				}
+
+			for (String locale : files.keySet())
+			{
+				List<Configuration> chain = new ArrayList<>(); //The locale, its parents, then messages.yml
+				for (String l = locale; l != null; l = CmdLocalization.parent(l))
+					if (files.containsKey(l))
+						chain.add(files.get(l));
+				chain.add(config);
+				chain.add(defaults);
+
+				locales.put(locale, compile(chain));
+			}
 
-	static String getDescriptionSeparator()
-	{
-		return getMessage("descriptionSeparator");
+			return compile(Arrays.asList(config, defaults));
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Cannot load messages", e);
+		}
 	}
 
-	static String getStringSerializer()
+	/**
+	 * Compile the messages of a chain of configs.
+	 *
+	 * @param chain the configs, the first one having precedence
+	 * @return the messages
+	 */
+	private static CmdMessages compile(List<Configuration> chain)
 	{
-		return getMessage("serializerNames.string");
+		int maxTabCompletes = 0;
+		for (Configuration yaml : chain)
+			if (yaml.get("maxTabCompletes") instanceof Number)
+			{
+				maxTabCompletes = ((Number) yaml.get("maxTabCompletes")).intValue();
+				break;
+			}
+
+		return new CmdMessages(key ->
+		{
+			for (Configuration yaml : chain)
+			{
+				Object message = yaml.get(key);
+				if (message instanceof String)
+					return (String) message;
+			}
+			return key;
+		}, section ->
+		{
+			Set<String> keys = new HashSet<>(); //The keys of the section, in any of the configs
+			for (Configuration yaml : chain)
+				if (yaml.contains(section))
+					keys.addAll(yaml.getSection(section).getKeys());
+			return keys;
+		}, maxTabCompletes);
 	}
 
-	static String getInvalidSenderTypeMessage()
+	/**
+	 * Get the name of a serializer.
+	 *
+	 * @param key the key of the name, in {@code serializerNames}
+	 * @return the name
+	 */
+	static String getSerializerName(String key)
 	{
-		return getMessage("invalidSenderTypeMessage");
+		return getRendering().getMessages().getSerializerName(key);
 	}
 
-	static String getNoPermissionMessage()
+	/**
+	 * Format the failure of a parse.
+	 *
+	 * @param failure   the failure
+	 * @param arg       the argument which failed
+	 * @param valueType the value type of the argument
+	 * @return the message
+	 */
+	static String formatFailure(ParseFailure failure, String arg, String valueType)
 	{
-		return getMessage("noPermissionMessage");
+		return getRendering().getMessages().formatFailure(failure, arg, valueType);
 	}
 
-	static String getSerializationError()
+	/*
+	 * Settings
+	 */
+
+	static int getMaxTabCompletes()
 	{
-		return getMessage("serializationError");
+		return getRendering().getMessages().getMaxTabCompletes();
 	}
 
 	private CmdConfig() {}
@@ -0,0 +1,128 @@
+package fr.skybeast.commandcreator.bungee;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.logging.Level;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 'Static' class watching messages.yml and the locale files, and reloading the config when a file changes.
+ * <p>
+ * The files are parsed and the usages are rendered on the thread of the watcher, then published at once.
+ */
+final class CmdConfigWatcher
+{
+	private static final long SETTLE_DELAY = 200; //The time to let the writes of a save settle, in milliseconds
+
+	private static WatchService watcher; //The watch service -- null if not started
+
+	private CmdConfigWatcher() {}
+
+	/**
+	 * Start watching the config.
+	 */
+	static void start()
+	{
+		Path file = CmdConfig.FILE.toPath().toAbsolutePath();
+
+		try
+		{
+			watcher = FileSystems.getDefault().newWatchService();
+			file.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		}
+		catch (IOException e)
+		{
+			Main.getInstance().getLogger().log(Level.WARNING, "Cannot watch " + file.getParent() + ", messages " +
+					"will not be reloaded", e);
+			stop();
+			return;
+		}
+
+		WatchService service = watcher;
+		Thread thread = new Thread(() -> watch(service), "CommandCreator config watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop watching the config.
+	 */
+	static void stop()
+	{
+		if (watcher == null)
+			return;
+
+		try
+		{
+			watcher.close(); //Wakes up the watching thread
+		}
+		catch (IOException e)
+		{
+			Main.getInstance().getLogger().log(Level.WARNING, "Cannot stop watching messages", e);
+		}
+		watcher = null;
+	}
+
+	/**
+	 * Watch the config until the watch service is closed.
+	 *
+	 * @param service the watch service
+	 */
+	private static void watch(WatchService service)
+	{
+		try
+		{
+			while (true)
+			{
+				if (!changed(service.take()))
+					continue;
+
+				//An editor may write a file several times while saving it: reload once the writes settled
+				Thread.sleep(SETTLE_DELAY);
+				WatchKey key;
+				while ((key = service.poll()) != null)
+					changed(key);
+
+				reload();
+			}
+		}
+		catch (ClosedWatchServiceException | InterruptedException ignored)
+		{
+			//Stopped
+		}
+	}
+
+	/**
+	 * Consume the events of a key.
+	 *
+	 * @param key the key
+	 * @return true if the config changed
+	 */
+	private static boolean changed(WatchKey key)
+	{
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents())
+			if (event.kind() == OVERFLOW || CmdConfig.isConfigFile(event.context().toString()))
+				changed = true;
+
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Reload the config, keeping the current one if the file is invalid.
+	 */
+	private static void reload()
+	{
+		try
+		{
+			CmdConfig.loadConfig();
+			Main.getInstance().getLogger().info("Reloaded messages");
+		}
+		catch (RuntimeException e)
+		{
+			Main.getInstance().getLogger().log(Level.SEVERE, "Cannot reload messages, keeping the previous ones", e);
+		}
+	}
+}
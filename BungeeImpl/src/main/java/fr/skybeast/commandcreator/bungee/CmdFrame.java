@@ -0,0 +1,209 @@
+package fr.skybeast.commandcreator.bungee;
+
+import fr.skybeast.commandcreator.CommandSerializationException;
+import fr.skybeast.commandcreator.CommandSerializer;
+import fr.skybeast.commandcreator.ParseFailure;
+import fr.skybeast.commandcreator.ParseResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+
+/**
+ * The arguments of a method being dispatched.
+ * <p>
+ * Also receives the failures of the serializers, so parsing an argument never throws.
+ */
+final class CmdFrame implements ParseResult
+{
+	final Object[] args; //The arguments of the method, sender first
+	final long[] primitives; //The raw bits of the primitive arguments, at the same index
+	final CmdMessages messages; //The messages in the locale of the sender
+
+	private ParseFailure failure; //The failure of the last parse, if any
+	private String failedArgument; //The argument which failed
+	private String failedValueType; //The value type of the argument which failed
+	private String suggestion; //The closest choice of an argument not part of its choice list -- null if none
+
+	private List<PendingArgument> pending; //The async arguments being resolved -- null if none
+
+	CmdFrame(Object[] args, long[] primitives, CmdMessages messages)
+	{
+		this.args = args;
+		this.primitives = primitives;
+		this.messages = messages;
+	}
+
+	@Override
+	public void fail(ParseFailure failure)
+	{
+		this.failure = failure;
+	}
+
+	/**
+	 * Remember the closest choice of an argument not part of its choice list.
+	 *
+	 * @param suggestion the closest choice, or null if none
+	 */
+	void suggest(String suggestion)
+	{
+		this.suggestion = suggestion;
+	}
+
+	/**
+	 * Get the closest choice of the argument not part of its choice list.
+	 *
+	 * @return the closest choice, or null if none
+	 */
+	String getSuggestion()
+	{
+		return suggestion;
+	}
+
+	/**
+	 * Check if the last parse failed, and remember which argument failed if so.
+	 *
+	 * @param arg        the parsed argument
+	 * @param serializer the serializer of the argument
+	 * @return true if the parse failed
+	 */
+	boolean failed(String arg, CommandSerializer<?> serializer)
+	{
+		if (failure == null)
+			return false;
+
+		failedArgument = arg;
+		failedValueType = CmdSerializers.valueType(serializer, messages); //In the locale of the sender
+		return true;
+	}
+
+	/**
+	 * Add an async argument to resolve before the invocation.
+	 *
+	 * @param index      the index of the parameter
+	 * @param arg        the argument
+	 * @param serializer the serializer of the argument
+	 * @param future     the future of the parsed argument
+	 */
+	void await(int index, String arg, CommandSerializer<?> serializer, CompletableFuture<?> future)
+	{
+		await(args, index, arg, serializer, future);
+	}
+
+	/**
+	 * Add an async argument to resolve before the invocation, such as an element of an array.
+	 *
+	 * @param target     the array receiving the resolved argument
+	 * @param index      the index of the argument in the array
+	 * @param arg        the argument
+	 * @param serializer the serializer of the argument
+	 * @param future     the future of the parsed argument
+	 */
+	void await(Object[] target, int index, String arg, CommandSerializer<?> serializer, CompletableFuture<?> future)
+	{
+		if (pending == null)
+			pending = new ArrayList<>(2);
+		pending.add(new PendingArgument(target, index, arg, serializer, future));
+	}
+
+	/**
+	 * Get if async arguments must be resolved before the invocation.
+	 *
+	 * @return true if some arguments are async
+	 */
+	boolean isPending()
+	{
+		return pending != null;
+	}
+
+	/**
+	 * Get a future completed once all the async arguments are resolved, successfully or not.
+	 *
+	 * @return the future
+	 */
+	CompletableFuture<Void> awaitAll()
+	{
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[pending.size()];
+		for (int i = 0; i < futures.length; i++)
+			futures[i] = pending.get(i).future;
+
+		return CompletableFuture.allOf(futures).handle((v, t) -> null);
+	}
+
+	/**
+	 * Store the resolved async arguments into the arguments.
+	 * The first failure is given to the frame.
+	 *
+	 * @return false if an async argument failed
+	 */
+	boolean complete()
+	{
+		for (PendingArgument arg : pending)
+		{
+			try
+			{
+				arg.target[arg.index] = arg.future.join();
+			}
+			catch (CompletionException | CancellationException e)
+			{
+				Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+				if (cause instanceof CommandSerializationException)
+					fail(ParseFailure.message(cause.getMessage()));
+				else
+				{
+					Main.getInstance().getLogger().log(Level.WARNING, "Cannot resolve argument " + arg.arg, cause);
+					fail(ParseFailure.INVALID_TYPE);
+				}
+
+				failed(arg.arg, arg.serializer);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get if a parse failed.
+	 *
+	 * @return true if a parse failed
+	 */
+	boolean isFailed()
+	{
+		return failure != null;
+	}
+
+	/**
+	 * Get the message of the failure.
+	 *
+	 * @return the message of the failure
+	 */
+	String getFailureMessage()
+	{
+		return messages.formatFailure(failure, failedArgument, failedValueType);
+	}
+
+	/**
+	 * An async argument being resolved.
+	 */
+	private static final class PendingArgument
+	{
+		final Object[] target; //The array receiving the resolved argument -- the arguments, or an array argument
+		final int index; //The index of the argument in the target
+		final String arg; //The argument
+		final CommandSerializer<?> serializer; //The serializer of the argument
+		final CompletableFuture<?> future; //The future of the parsed argument
+
+		PendingArgument(Object[] target, int index, String arg, CommandSerializer<?> serializer,
+		                CompletableFuture<?> future)
+		{
+			this.target = target;
+			this.index = index;
+			this.arg = arg;
+			this.serializer = serializer;
+			this.future = future;
+		}
+	}
+}
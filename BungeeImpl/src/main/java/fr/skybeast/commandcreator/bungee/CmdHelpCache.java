@@ -0,0 +1,105 @@
+package fr.skybeast.commandcreator.bungee;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the rendered help of the command nodes, by node, path of labels typed to reach it and visibility of
+ * the entries.
+ * <p>
+ * The help is rendered once per path and visibility, and sent as is afterwards. The visibility bitmaps are shared by
+ * the senders with the same permissions, so there are few of them per node. Each {@link CmdRendering} has its own cache, so a
+ * reload drops the help rendered from the previous messages.
+ */
+final class CmdHelpCache
+{
+	private static final int MAX_SIZE = 1024; //The maximum number of entries
+
+	private final Map<Key, String[]> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the rendered help of a node, or render it.
+	 *
+	 * @param rendering the snapshot to render the help from
+	 * @param node      the command node
+	 * @param cmd       the arguments
+	 * @param loc       the location of the argument to dispatch
+	 * @param rootLabel  the original label
+	 * @param visibility the visibility bitmap of the entries of the help
+	 * @return the lines of the help
+	 */
+	String[] get(CmdRendering rendering, Cmd node, String[] cmd, int loc, String rootLabel, long[] visibility)
+	{
+		String[] help = cache.get(new Key(node, rootLabel, cmd, loc, visibility)); //Lookup without copying the path
+		if (help != null)
+			return help;
+
+		help = node.renderHelp(rendering, cmd, loc, rootLabel, visibility);
+
+		if (cache.size() >= MAX_SIZE)
+			cache.clear();
+
+		Key key = new Key(node, rootLabel, Arrays.copyOf(cmd, Math.max(loc - 1, 0)), loc, visibility);
+		String[] previous = cache.putIfAbsent(key, help);
+		return previous == null ? help : previous;
+	}
+
+	/**
+	 * The key of a rendered help: the node, the root label, the labels typed before the node and the visibility.
+	 * <p>
+	 * The root label and the typed labels are only part of the help when the node is not the root.
+	 */
+	private static final class Key
+	{
+		private final Cmd node; //The command node
+		private final String rootLabel; //The original label -- null if the node is the root
+		private final String[] path; //The arguments, only the ones before the label of the node are compared
+		private final int length; //The number of typed labels before the label of the node
+		private final long[] visibility; //The visibility bitmap of the entries, never modified once computed
+		private final int hash; //The hash code, computed once
+
+		Key(Cmd node, String rootLabel, String[] path, int loc, long[] visibility)
+		{
+			this.node = node;
+			this.rootLabel = loc == 0 ? null : rootLabel;
+			this.path = path;
+			this.visibility = visibility;
+			length = Math.max(loc - 1, 0);
+
+			int h = System.identityHashCode(node) * 31 + (this.rootLabel == null ? 0 : this.rootLabel.hashCode());
+			h = 31 * h + Arrays.hashCode(visibility);
+			for (int i = 0; i < length; i++)
+				h = 31 * h + path[i].hashCode();
+			hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+
+			Key key = (Key) o;
+			if (node != key.node || length != key.length || hash != key.hash)
+				return false;
+			if (!Arrays.equals(visibility, key.visibility))
+				return false;
+			if (rootLabel == null ? key.rootLabel != null : !rootLabel.equals(key.rootLabel))
+				return false;
+
+			for (int i = 0; i < length; i++)
+				if (!path[i].equals(key.path[i]))
+					return false;
+			return true;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package fr.skybeast.commandcreator.bungee;
+
+import fr.skybeast.commandcreator.GeneratedCommands;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * The invoker of a command method.
+ * <p>
+ * Built once at registration on top of a MethodHandle adapting the arrays of the dispatch to the parameters of the
+ * method, so the arguments are neither checked nor copied on each call as Method.invoke does. Void, boolean and
+ * Runnable methods have their own implementation, so the handle is always called with an exact type.
+ * <p>
+ * The handle is held in a field, shared by the call sites of every command: the JIT cannot inline it as a constant.
+ * Only the methods of the classes compiled with the CommandCreator processor are called directly, through the
+ * {@link GeneratedCommands} generated for them.
+ * <p>
+ * Primitive parameters are not read from the Object array but from a long array holding their raw bits, so they
+ * are never boxed.
+ */
+abstract class CmdInvoker
+{
+	/**
+	 * The primitives of a method without primitive parameters.
+	 */
+	static final long[] NO_PRIMITIVES = new long[0];
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodHandle OBJECT_GETTER = MethodHandles.arrayElementGetter(Object[].class);
+	private static final MethodHandle PRIMITIVE_GETTER = MethodHandles.arrayElementGetter(long[].class);
+	private static final MethodHandle INT_BITS_TO_FLOAT;
+	private static final MethodHandle LONG_BITS_TO_DOUBLE;
+
+	static
+	{
+		try
+		{
+			INT_BITS_TO_FLOAT = LOOKUP.findStatic(Float.class, "intBitsToFloat",
+					MethodType.methodType(float.class, int.class));
+			LONG_BITS_TO_DOUBLE = LOOKUP.findStatic(Double.class, "longBitsToDouble",
+					MethodType.methodType(double.class, long.class));
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Create the invoker of a method.
+	 *
+	 * @param method the static method to invoke, already validated by {@link CmdPlans}
+	 * @return the invoker
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	static CmdInvoker of(Method method)
+			throws IllegalAccessException
+	{
+		//Take each parameter from the Object array or from the primitive array
+		Class<?>[] types = method.getParameterTypes();
+		MethodHandle[] getters = new MethodHandle[types.length];
+		int[] reorder = new int[types.length];
+		for (int i = 0; i < types.length; i++)
+		{
+			getters[i] = getter(types[i], i);
+			reorder[i] = types[i].isPrimitive() ? 1 : 0;
+		}
+
+		MethodHandle handle = MethodHandles.permuteArguments(
+				MethodHandles.filterArguments(LOOKUP.unreflect(method), 0, getters),
+				MethodType.methodType(method.getReturnType(), Object[].class, long[].class),
+				reorder);
+
+		Class<?> returnType = method.getReturnType();
+		if (returnType == Runnable.class)
+			return new HookInvoker(handle);
+		return returnType == void.class ? new VoidInvoker(handle) : new BooleanInvoker(handle);
+	}
+
+	/**
+	 * Create the invoker of a method called through the dispatcher generated at compile time.
+	 *
+	 * @param generated the dispatcher of the class of the method
+	 * @param index     the index of the method in the dispatcher
+	 * @return the invoker
+	 */
+	static CmdInvoker of(GeneratedCommands generated, int index)
+	{
+		return new GeneratedInvoker(generated, index);
+	}
+
+	/**
+	 * Create the getter of a parameter.
+	 *
+	 * @param type  the type of the parameter
+	 * @param index the index of the parameter
+	 * @return the getter, (Object[])type or (long[])type
+	 */
+	private static MethodHandle getter(Class<?> type, int index)
+	{
+		if (!type.isPrimitive())
+			return MethodHandles.insertArguments(OBJECT_GETTER, 1, index)
+					.asType(MethodType.methodType(type, Object[].class));
+
+		MethodHandle bits = MethodHandles.insertArguments(PRIMITIVE_GETTER, 1, index); //(long[])long
+		if (type == double.class)
+			return MethodHandles.filterReturnValue(bits, LONG_BITS_TO_DOUBLE);
+		if (type == float.class)
+			return MethodHandles.filterReturnValue(
+					MethodHandles.explicitCastArguments(bits, MethodType.methodType(int.class, long[].class)),
+					INT_BITS_TO_FLOAT);
+
+		//Narrowing conversion; boolean takes the lowest bit
+		return MethodHandles.explicitCastArguments(bits, MethodType.methodType(type, long[].class));
+	}
+
+	/**
+	 * Store a primitive into the primitive array of an invocation.
+	 *
+	 * @param value the primitive, boxed
+	 * @return the raw bits of the primitive
+	 */
+	static long toBits(Object value)
+	{
+		if (value instanceof Double)
+			return Double.doubleToRawLongBits((Double) value);
+		if (value instanceof Float)
+			return Float.floatToRawIntBits((Float) value);
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		if (value instanceof Boolean)
+			return (Boolean) value ? 1 : 0;
+		return (Character) value;
+	}
+
+	/**
+	 * Invoke the method.
+	 *
+	 * @param args       the arguments of the method, sender first
+	 * @param primitives the raw bits of the primitive arguments, at the same index
+	 * @return what the method returned, or true if return type is void
+	 * @throws InvocationTargetException if the method threw an exception
+	 */
+	abstract boolean invoke(Object[] args, long[] primitives)
+			throws InvocationTargetException;
+
+	/**
+	 * Invoke the method, and get the completion hook it returned.
+	 *
+	 * @param args       the arguments of the method, sender first
+	 * @param primitives the raw bits of the primitive arguments, at the same index
+	 * @return the completion hook, or null if none
+	 * @throws InvocationTargetException if the method threw an exception
+	 */
+	Runnable invokeWithHook(Object[] args, long[] primitives)
+			throws InvocationTargetException
+	{
+		invoke(args, primitives);
+		return null;
+	}
+
+	/**
+	 * Invoker of a method through the dispatcher generated at compile time.
+	 */
+	private static final class GeneratedInvoker extends CmdInvoker
+	{
+		private final GeneratedCommands generated; //The dispatcher of the class of the method
+		private final int index; //The index of the method in the dispatcher
+
+		GeneratedInvoker(GeneratedCommands generated, int index)
+		{
+			this.generated = generated;
+			this.index = index;
+		}
+
+		@Override
+		boolean invoke(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			Object result = call(args, primitives);
+			if (result instanceof Runnable) //Completion hook
+			{
+				((Runnable) result).run();
+				return true;
+			}
+
+			return result == null || (Boolean) result; //Null if void
+		}
+
+		@Override
+		Runnable invokeWithHook(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			Object result = call(args, primitives);
+			return result instanceof Runnable ? (Runnable) result : null;
+		}
+
+		/**
+		 * Call the method.
+		 *
+		 * @param args       the arguments of the method, sender first
+		 * @param primitives the raw bits of the primitive arguments, at the same index
+		 * @return what the method returned
+		 * @throws InvocationTargetException if the method threw an exception
+		 */
+		private Object call(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			try
+			{
+				return generated.invoke(index, args, primitives);
+			}
+			catch (Throwable t)
+			{
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+
+	/**
+	 * Invoker of a method returning void.
+	 */
+	private static final class VoidInvoker extends CmdInvoker
+	{
+		private final MethodHandle handle; //(Object[], long[])void
+
+		VoidInvoker(MethodHandle handle)
+		{
+			this.handle = handle;
+		}
+
+		@Override
+		boolean invoke(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			try
+			{
+				handle.invokeExact(args, primitives);
+				return true;
+			}
+			catch (Throwable t)
+			{
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+
+	/**
+	 * Invoker of a method returning boolean.
+	 */
+	private static final class BooleanInvoker extends CmdInvoker
+	{
+		private final MethodHandle handle; //(Object[], long[])boolean
+
+		BooleanInvoker(MethodHandle handle)
+		{
+			this.handle = handle;
+		}
+
+		@Override
+		boolean invoke(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			try
+			{
+				return (boolean) handle.invokeExact(args, primitives);
+			}
+			catch (Throwable t)
+			{
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+
+	/**
+	 * Invoker of a method returning a completion hook.
+	 */
+	private static final class HookInvoker extends CmdInvoker
+	{
+		private final MethodHandle handle; //(Object[], long[])Runnable
+
+		HookInvoker(MethodHandle handle)
+		{
+			this.handle = handle;
+		}
+
+		@Override
+		boolean invoke(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			Runnable hook = invokeWithHook(args, primitives);
+			if (hook != null)
+				hook.run();
+			return true;
+		}
+
+		@Override
+		Runnable invokeWithHook(Object[] args, long[] primitives)
+				throws InvocationTargetException
+		{
+			try
+			{
+				return (Runnable) handle.invokeExact(args, primitives);
+			}
+			catch (Throwable t)
+			{
+				throw new InvocationTargetException(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package fr.skybeast.commandcreator.bungee;
+
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the rendering of each online player, from its locale.
+ * <p>
+ * A cached rendering is used as long as the locale of the player and the localization are the same.
+ */
+final class CmdLocales implements Listener
+{
+	private static final Map<UUID, Cached> CACHE = new ConcurrentHashMap<>();
+
+	private CmdLocales() {}
+
+	/**
+	 * Listen to disconnections, to forget the players.
+	 *
+	 * @param plugin the plugin
+	 */
+	static void start(Plugin plugin)
+	{
+		ProxyServer.getInstance().getPluginManager().registerListener(plugin, new CmdLocales());
+	}
+
+	/**
+	 * Get the rendering of a sender, in its locale.
+	 *
+	 * @param sender       the sender
+	 * @param localization the current localization
+	 * @return the rendering
+	 */
+	static CmdRendering get(CommandSender sender, CmdLocalization localization)
+	{
+		if (!(sender instanceof ProxiedPlayer)) //The console uses messages.yml
+			return localization.getDefaults();
+
+		ProxiedPlayer player = (ProxiedPlayer) sender;
+		Locale locale = player.getLocale();
+		if (locale == null) //Not sent by the client yet
+			return localization.getDefaults();
+
+		Cached cached = CACHE.get(player.getUniqueId());
+		if (cached != null && cached.localization == localization && cached.locale.equals(locale))
+			return cached.rendering;
+
+		CmdRendering rendering = localization.get(locale.toString());
+		if (ProxyServer.getInstance().getPlayer(player.getUniqueId()) != null) //Still connected
+			CACHE.put(player.getUniqueId(), new Cached(localization, locale, rendering));
+		return rendering;
+	}
+
+	/**
+	 * Forget the renderings of every player, when they may hold commands no longer registered.
+	 */
+	static void clear()
+	{
+		CACHE.clear();
+	}
+
+	@EventHandler
+	public void onDisconnect(PlayerDisconnectEvent event)
+	{
+		CACHE.remove(event.getPlayer().getUniqueId());
+	}
+
+	/**
+	 * The rendering of a player.
+	 */
+	private static final class Cached
+	{
+		private final CmdLocalization localization; //The localization the rendering was resolved from
+		private final Locale locale; //The locale of the player
+		private final CmdRendering rendering; //The rendering of the locale
+
+		Cached(CmdLocalization localization, Locale locale, CmdRendering rendering)
+		{
+			this.localization = localization;
+			this.locale = locale;
+			this.rendering = rendering;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package fr.skybeast.commandcreator.bungee;
+
+import fr.skybeast.commandcreator.ParseFailure;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * An immutable bundle of the messages, read once from the config.
+ * <p>
+ * The messages with placeholders are compiled into {@link CmdTemplate}s. Every message read at runtime is resolved
+ * when the bundle is created, so the config is never walked again.
+ */
+@Getter
+final class CmdMessages
+{
+	/*
+	 * Settings
+	 */
+	private final int maxTabCompletes; //The maximum number of tab completes, 0 if no limit
+
+	/*
+	 * Usages
+	 */
+	private final CmdTemplate helpHeader;
+	private final CmdTemplate helpEntry;
+	private final String optional;
+	private final CmdTemplate simpleUsageCompound;
+	private final CmdTemplate simpleUsageRequired;
+	private final CmdTemplate simpleUsageOptional;
+	private final String compoundSuffix;
+	private final String separator;
+	private final String descriptionSeparator;
+	private final String stringSerializer;
+
+	/*
+	 * Messages
+	 */
+	@Getter(AccessLevel.NONE)
+	private final CmdTemplate invalidSenderTypeMessage;
+	private final String noPermissionMessage;
+	private final CmdTemplate serializationError;
+	private final String asyncBusyMessage;
+	private final String asyncTimeoutMessage;
+	private final CmdTemplate didYouMeanMessage;
+
+	@Getter(AccessLevel.NONE)
+	private final Map<String, CmdTemplate> serializationErrors; //The failures, by key
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> serializerNames; //The names of the serializers, by key
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> senderTypeNames; //The names of the sender types, by key
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> invalidSenderTypeMessages = new ConcurrentHashMap<>(); //By sender type key
+
+	/**
+	 * Read the messages.
+	 *
+	 * @param lookup          the lookup of a message from its key, returning the key if the message is missing
+	 * @param sectionKeys     the keys of a section of the config, such as {@code serializationErrors}
+	 * @param maxTabCompletes the maximum number of tab completes
+	 */
+	CmdMessages(Function<String, String> lookup, Function<String, Collection<String>> sectionKeys,
+	            int maxTabCompletes)
+	{
+		this.maxTabCompletes = maxTabCompletes;
+
+		helpHeader = template(lookup, "helpHeader");
+		helpEntry = template(lookup, "helpEntry");
+		optional = lookup.apply("optional");
+		simpleUsageCompound = template(lookup, "simpleUsageCompound");
+		simpleUsageRequired = template(lookup, "simpleUsageRequired");
+		simpleUsageOptional = template(lookup, "simpleUsageOptional");
+		compoundSuffix = lookup.apply("compoundSuffix");
+		separator = lookup.apply("separator");
+		descriptionSeparator = lookup.apply("descriptionSeparator");
+		stringSerializer = lookup.apply("serializerNames.string");
+
+		invalidSenderTypeMessage = template(lookup, "invalidSenderTypeMessage");
+		noPermissionMessage = lookup.apply("noPermissionMessage");
+		serializationError = template(lookup, "serializationError");
+		asyncBusyMessage = lookup.apply("asyncBusyMessage");
+		asyncTimeoutMessage = lookup.apply("asyncTimeoutMessage");
+		didYouMeanMessage = template(lookup, "didYouMeanMessage");
+
+		serializationErrors = new HashMap<>();
+		for (String key : sectionKeys.apply("serializationErrors"))
+			serializationErrors.put(key, template(lookup, "serializationErrors." + key));
+
+		serializerNames = section(lookup, sectionKeys, "serializerNames");
+		senderTypeNames = section(lookup, sectionKeys, "senderTypes");
+
+		for (CmdSenderType type : CmdSenderType.getTypes())
+			getInvalidSenderTypeMessage(type);
+		getInvalidSenderTypeMessage(null);
+	}
+
+	/**
+	 * Compile the template of a message.
+	 *
+	 * @param lookup the lookup of the messages
+	 * @param key    the key of the message
+	 * @return the template
+	 */
+	private static CmdTemplate template(Function<String, String> lookup, String key)
+	{
+		return CmdTemplate.compile(lookup.apply(key));
+	}
+
+	/**
+	 * Read the messages of a section.
+	 *
+	 * @param lookup      the lookup of the messages
+	 * @param sectionKeys the keys of a section
+	 * @param section     the section
+	 * @return the messages, by key in the section
+	 */
+	private static Map<String, String> section(Function<String, String> lookup,
+	                                           Function<String, Collection<String>> sectionKeys, String section)
+	{
+		Map<String, String> messages = new HashMap<>();
+		for (String key : sectionKeys.apply(section))
+			messages.put(key, lookup.apply(section + '.' + key));
+		return messages;
+	}
+
+	/**
+	 * Get the name of a serializer.
+	 *
+	 * @param key the key of the name, in {@code serializerNames}
+	 * @return the name, or the path of the key if missing
+	 */
+	String getSerializerName(String key)
+	{
+		String name = serializerNames.get(key);
+		return name == null ? "serializerNames." + key : name;
+	}
+
+	/**
+	 * Get the name of a sender type.
+	 *
+	 * @param key the key of the name, in {@code senderTypes}
+	 * @return the name, or the key itself if missing
+	 */
+	String getSenderTypeName(String key)
+	{
+		return senderTypeNames.getOrDefault(key, key);
+	}
+
+	/**
+	 * Get the message for a sender of a type which cannot run a command.
+	 * The messages are formatted when the bundle is compiled, or on first use for the types registered after.
+	 *
+	 * @param senderType the type of the sender, or null if unknown
+	 * @return the message
+	 */
+	String getInvalidSenderTypeMessage(CmdSenderType senderType)
+	{
+		String key = senderType == null ? CmdSenderType.UNKNOWN : senderType.getConfig();
+		String message = invalidSenderTypeMessages.get(key);
+		if (message != null)
+			return message;
+
+		return invalidSenderTypeMessages.computeIfAbsent(key,
+				k -> invalidSenderTypeMessage.format(getSenderTypeName(k)));
+	}
+
+	/**
+	 * Format the failure of a parse.
+	 *
+	 * @param failure   the failure
+	 * @param arg       the argument which failed
+	 * @param valueType the value type of the argument
+	 * @return the message
+	 */
+	String formatFailure(ParseFailure failure, String arg, String valueType)
+	{
+		if (failure.getKey() == null)
+			return failure.getMessage();
+
+		CmdTemplate template = serializationErrors.get(failure.getKey());
+		if (template == null) //Not in the config
+			return "serializationErrors." + failure.getKey();
+
+		return template.format(arg, valueType);
+	}
+}
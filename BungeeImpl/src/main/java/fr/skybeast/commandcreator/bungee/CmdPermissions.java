@@ -0,0 +1,191 @@
+package fr.skybeast.commandcreator.bungee;
+
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the permission decisions of each online player, by command node, and of the sub commands visible to
+ * them, by compound.
+ * <p>
+ * The sub commands visible to a sender are a bitmap over the sub commands of the compound, sorted by label: the
+ * completion and the help are filtered with a bitmask instead of a permission check per sub command.
+ * <p>
+ * Permission plugins do not announce their changes, so the decisions of a player expire after {@link #EXPIRY}. They
+ * are dropped when the player disconnects or switches server, and on {@link fr.skybeast.commandcreator.CommandCreator#invalidatePermissions()}.
+ */
+final class CmdPermissions implements Listener
+{
+	private static final long EXPIRY = 30_000; //The lifetime of the decisions of a player, in milliseconds
+
+	static final long[] ALL_VISIBLE = {}; //The bitmap of the compounds whose sub commands are all visible
+
+	private static final Map<UUID, Decisions> CACHE = new ConcurrentHashMap<>();
+
+	private CmdPermissions() {}
+
+	/**
+	 * Listen to disconnections and server switches, to forget the decisions.
+	 *
+	 * @param plugin the plugin
+	 */
+	static void start(Plugin plugin)
+	{
+		ProxyServer.getInstance().getPluginManager().registerListener(plugin, new CmdPermissions());
+	}
+
+	/**
+	 * Check whether a sender has the permissions of a command node, and of the compounds above it.
+	 *
+	 * @param sender the sender
+	 * @param cmd    the command node
+	 * @return true if all permissions conditions were met
+	 */
+	static boolean check(CommandSender sender, Cmd cmd)
+	{
+		if (!(sender instanceof ProxiedPlayer)) //The console is not cached
+			return Main.checkPermission(sender, cmd.getFlattenedPermissions());
+
+		Decisions decisions = decisions((ProxiedPlayer) sender);
+		Boolean decision = decisions.decisions.get(cmd);
+		if (decision == null)
+		{
+			decision = Main.checkPermission(sender, cmd.getFlattenedPermissions());
+			decisions.decisions.put(cmd, decision);
+		}
+		return decision;
+	}
+
+	/**
+	 * Get the sub commands of a compound visible to a sender: the ones the sender has the permissions of.
+	 *
+	 * @param sender      the sender
+	 * @param compound    the compound
+	 * @param subCommands the sub commands of the compound, sorted by label
+	 * @return the bitmap of the visible sub commands, or {@link #ALL_VISIBLE}
+	 */
+	static long[] visibility(CommandSender sender, Cmd compound, List<Cmd> subCommands)
+	{
+		if (!(sender instanceof ProxiedPlayer))
+			return computeVisibility(sender, subCommands);
+
+		Decisions decisions = decisions((ProxiedPlayer) sender);
+		long[] visibility = decisions.visibilities.get(compound);
+		if (visibility == null)
+		{
+			visibility = computeVisibility(sender, subCommands);
+			decisions.visibilities.put(compound, visibility);
+		}
+		return visibility;
+	}
+
+	/**
+	 * Compute the sub commands of a compound visible to a sender.
+	 *
+	 * @param sender      the sender
+	 * @param subCommands the sub commands of the compound, sorted by label
+	 * @return the bitmap of the visible sub commands, or {@link #ALL_VISIBLE}
+	 */
+	private static long[] computeVisibility(CommandSender sender, List<Cmd> subCommands)
+	{
+		long[] visibility = new long[(subCommands.size() + 63) >>> 6];
+		boolean all = true;
+
+		for (int i = 0; i < subCommands.size(); i++)
+		{
+			if (subCommands.get(i).hasPermission(sender))
+				visibility[i >>> 6] |= 1L << i;
+			else
+				all = false;
+		}
+
+		return all ? ALL_VISIBLE : visibility;
+	}
+
+	/**
+	 * Check whether a sub command is visible.
+	 *
+	 * @param visibility the bitmap of the visible sub commands
+	 * @param index      the index of the sub command, in the order of the labels
+	 * @return true if the sub command is visible
+	 */
+	static boolean isVisible(long[] visibility, int index)
+	{
+		return visibility == ALL_VISIBLE || (visibility[index >>> 6] & 1L << index) != 0;
+	}
+
+	/**
+	 * Get the decisions of a player, starting new ones if they expired.
+	 *
+	 * @param player the player
+	 * @return the decisions
+	 */
+	private static Decisions decisions(ProxiedPlayer player)
+	{
+		long now = System.currentTimeMillis();
+
+		Decisions decisions = CACHE.get(player.getUniqueId());
+		if (decisions == null || now - decisions.created > EXPIRY)
+		{
+			decisions = new Decisions(now);
+			if (ProxyServer.getInstance().getPlayer(player.getUniqueId()) != null) //Still connected
+				CACHE.put(player.getUniqueId(), decisions);
+		}
+		return decisions;
+	}
+
+	/**
+	 * Forget the decisions of every player.
+	 */
+	static void invalidate()
+	{
+		CACHE.clear();
+	}
+
+	/**
+	 * Forget the decisions of a player.
+	 *
+	 * @param player the unique id of the player
+	 */
+	static void invalidate(UUID player)
+	{
+		CACHE.remove(player);
+	}
+
+	@EventHandler
+	public void onDisconnect(PlayerDisconnectEvent event)
+	{
+		invalidate(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler
+	public void onServerSwitch(ServerSwitchEvent event)
+	{
+		invalidate(event.getPlayer().getUniqueId()); //Permissions may be per server
+	}
+
+	/**
+	 * The decisions of a player.
+	 */
+	private static final class Decisions
+	{
+		private final long created; //The time the decisions started to be cached
+		private final Map<Cmd, Boolean> decisions = new ConcurrentHashMap<>(); //The decisions, by command node
+		private final Map<Cmd, long[]> visibilities = new ConcurrentHashMap<>(); //The visible sub commands, by compound
+
+		Decisions(long created)
+		{
+			this.created = created;
+		}
+	}
+}
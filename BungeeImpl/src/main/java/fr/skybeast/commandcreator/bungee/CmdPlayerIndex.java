@@ -0,0 +1,116 @@
+package fr.skybeast.commandcreator.bungee;
+
+import fr.skybeast.commandcreator.CompletionRange;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The index of the names of the players on the proxy, for the tab completion.
+ * <p>
+ * The names are kept in an array sorted case-insensitively, copied on each login and disconnect: the names starting
+ * with a prefix are a range of the array, returned as a CompletionRange and read without locking from any thread.
+ */
+final class CmdPlayerIndex implements Listener
+{
+	private static final String[] EMPTY = new String[0];
+	private static final Object LOCK = new Object(); //Held while updating the index
+
+	private static volatile String[] names = EMPTY; //The names of all the players, replaced on each change
+
+	private CmdPlayerIndex() {}
+
+	/**
+	 * Index the players on the proxy, and listen to logins and disconnects.
+	 *
+	 * @param plugin the plugin
+	 */
+	static void start(Plugin plugin)
+	{
+		synchronized (LOCK)
+		{
+			for (ProxiedPlayer player : ProxyServer.getInstance().getPlayers())
+				names = insert(names, player.getName());
+		}
+
+		ProxyServer.getInstance().getPluginManager().registerListener(plugin, new CmdPlayerIndex());
+	}
+
+	@EventHandler
+	public void onPostLogin(PostLoginEvent event)
+	{
+		synchronized (LOCK)
+		{
+			names = insert(names, event.getPlayer().getName());
+		}
+		CmdCompletionCache.invalidate(CmdCompletionCache.Source.PLAYERS);
+	}
+
+	@EventHandler
+	public void onDisconnect(PlayerDisconnectEvent event)
+	{
+		synchronized (LOCK)
+		{
+			names = remove(names, event.getPlayer().getName());
+		}
+		CmdCompletionCache.invalidate(CmdCompletionCache.Source.PLAYERS);
+	}
+
+	/**
+	 * Copy a sorted array with a name inserted.
+	 *
+	 * @param sorted the sorted array
+	 * @param name   the name to insert
+	 * @return the new array, or the same array if the name is already there
+	 */
+	private static String[] insert(String[] sorted, String name)
+	{
+		int i = Arrays.binarySearch(sorted, name, String.CASE_INSENSITIVE_ORDER);
+		if (i >= 0) //Already indexed
+			return sorted;
+		i = -i - 1;
+
+		String[] updated = new String[sorted.length + 1];
+		System.arraycopy(sorted, 0, updated, 0, i);
+		updated[i] = name;
+		System.arraycopy(sorted, i, updated, i + 1, sorted.length - i);
+		return updated;
+	}
+
+	/**
+	 * Copy a sorted array with a name removed.
+	 *
+	 * @param sorted the sorted array
+	 * @param name   the name to remove
+	 * @return the new array, or the same array if the name is not there
+	 */
+	private static String[] remove(String[] sorted, String name)
+	{
+		int i = Arrays.binarySearch(sorted, name, String.CASE_INSENSITIVE_ORDER);
+		if (i < 0) //Not indexed
+			return sorted;
+
+		String[] updated = new String[sorted.length - 1];
+		System.arraycopy(sorted, 0, updated, 0, i);
+		System.arraycopy(sorted, i + 1, updated, i, sorted.length - i - 1);
+		return updated;
+	}
+
+	/**
+	 * Get the sorted names of the players on the proxy starting with a prefix, ignoring case.
+	 *
+	 * @param prefix the prefix
+	 * @return the view of the names
+	 */
+	static List<String> complete(String prefix)
+	{
+		return CompletionRange.ofIgnoreCase(names, prefix);
+	}
+}
@@ -1,27 +1,47 @@
 package fr.skybeast.commandcreator.bungee;
 
-import lombok.Getter;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
 /**
- * Enumeration of sender types.
+ * A type of command sender, named in the config.
+ * <p>
+ * The types are kept in a registry, open to the plugins. The type of a class of sender is resolved once, to the most
+ * specific type registered, then read from a {@link ClassValue}.
  */
-enum CmdSenderType
+final class CmdSenderType
 {
-	PLAYER(ProxiedPlayer.class, "player"),
-	CONSOLE(getConsoleCommandSender(), "console"),
+	private static final Predicate<CommandSender> ANY_SENDER = sender -> true;
 
-	ALL(CommandSender.class, "all");
+	private static final List<CmdSenderType> TYPES = new CopyOnWriteArrayList<>(); //The registered types
+	private static volatile ClassValue<CmdSenderType> resolved = newCache(); //The type of each class of sender
 
-	private final Class<? extends CommandSender> clazz;
+	/**
+	 * The key of the name of the senders of unknown type in the config.
+	 */
+	static final String UNKNOWN = "unknown";
+
+	private final Class<?> clazz;
 	@Getter
-	private final String name;
+	private final String config; //The key of the name in the config
 
-	CmdSenderType(Class<? extends CommandSender> clazz, String config)
+	static
+	{
+		register(ProxiedPlayer.class, "player");
+		register(getConsoleCommandSender(), "console");
+	}
+
+	private CmdSenderType(Class<?> clazz, String config)
 	{
 		this.clazz = clazz;
-		name = CmdConfig.getMessage("senderTypes." + config);
+		this.config = config;
 	}
 
 	/**
@@ -29,12 +49,11 @@ enum CmdSenderType
 	 *
 	 * @return the console command sender class
 	 */
-	@SuppressWarnings("unchecked")
-	private static Class<? extends CommandSender> getConsoleCommandSender()
+	private static Class<?> getConsoleCommandSender()
 	{
 		try
 		{
-			return (Class<? extends CommandSender>) Class.forName("net.md_5.bungee.command.ConsoleCommandSender");
+			return Class.forName("net.md_5.bungee.command.ConsoleCommandSender");
 		}
 		catch (ClassNotFoundException e)
 		{
@@ -43,28 +62,97 @@ enum CmdSenderType
 	}
 
 	/**
-	 * Get if a command sender is instance of this SenderType.
+	 * Register a type of sender, replacing the type of the same class if any.
+	 *
+	 * @param clazz  the class of the senders
+	 * @param config the key of the name in the config, or the name itself if not in the config
+	 */
+	static synchronized void register(Class<?> clazz, String config)
+	{
+		TYPES.removeIf(type -> type.clazz == clazz);
+		TYPES.add(new CmdSenderType(clazz, config));
+		resolved = newCache(); //The classes already seen may resolve to the new type
+	}
+
+	/**
+	 * Forget the types of a class loader, such as the ones of a disabled plugin.
 	 *
-	 * @param sender the command sender
-	 * @return true if the sender is instance of this SenderType
+	 * @param loader the class loader
 	 */
-	boolean isInstance(CommandSender sender)
+	static synchronized void release(ClassLoader loader)
 	{
-		return clazz.isInstance(sender);
+		if (TYPES.removeIf(type -> type.clazz.getClassLoader() == loader))
+			resolved = newCache(); //The classes already seen may resolve to the removed types
 	}
 
 	/**
-	 * Get a sender type from its class.
+	 * Create the cache of the types of the classes of senders.
+	 *
+	 * @return the cache
+	 */
+	private static ClassValue<CmdSenderType> newCache()
+	{
+		return new ClassValue<CmdSenderType>()
+		{
+			@Override
+			protected CmdSenderType computeValue(Class<?> type)
+			{
+				return resolve(type);
+			}
+		};
+	}
+
+	/**
+	 * Resolve the most specific type of a class of sender.
 	 *
 	 * @param clazz the class
+	 * @return the sender type, or null if none
+	 */
+	private static CmdSenderType resolve(Class<?> clazz)
+	{
+		CmdSenderType found = null;
+		for (CmdSenderType type : TYPES)
+			if (type.clazz.isAssignableFrom(clazz) && (found == null || found.clazz.isAssignableFrom(type.clazz)))
+				found = type;
+
+		return found;
+	}
+
+	/**
+	 * Get the registered types.
+	 *
+	 * @return the types
+	 */
+	static List<CmdSenderType> getTypes()
+	{
+		return Collections.unmodifiableList(TYPES);
+	}
+
+	/**
+	 * Get the type of a sender.
+	 *
+	 * @param sender the sender
 	 * @return the sender type or null if not found
 	 */
-	static CmdSenderType get(Class<?> clazz)
+	static CmdSenderType get(CommandSender sender)
+	{
+		return resolved.get(sender.getClass());
+	}
+
+	/**
+	 * Get the check of the senders accepted by a parameter, computed once per command.
+	 *
+	 * @param parameter the type of the parameter
+	 * @return the check, or null if the parameter is not a command sender
+	 */
+	static Predicate<CommandSender> checkOf(Class<?> parameter)
 	{
-		for (CmdSenderType type : values())
-			if (type.clazz.isAssignableFrom(clazz))
-				return type;
+		if (parameter == CommandSender.class)
+			return ANY_SENDER;
+
+		if (!CommandSender.class.isAssignableFrom(parameter))
+			return null;
 
-		return null;
+		return parameter::isInstance;
 	}
 }
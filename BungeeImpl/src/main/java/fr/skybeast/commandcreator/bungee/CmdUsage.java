@@ -0,0 +1,15 @@
+package fr.skybeast.commandcreator.bungee;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The usages of a command node, rendered from the messages.
+ */
+@AllArgsConstructor
+@Getter
+final class CmdUsage
+{
+	private final String simpleUsage; //The usage of the command
+	private final String[] parametersUsage; //All the usages of the parameters
+}
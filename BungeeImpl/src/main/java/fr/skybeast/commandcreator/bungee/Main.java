@@ -1,8 +1,8 @@
 package fr.skybeast.commandcreator.bungee;
 
-import fr.skybeast.commandcreator.Command;
 import fr.skybeast.commandcreator.CommandCreationException;
 import fr.skybeast.commandcreator.CommandCreator;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
 import net.md_5.bungee.api.CommandSender;
@@ -11,9 +11,7 @@ import net.md_5.bungee.api.plugin.Plugin;
 import net.md_5.bungee.api.plugin.TabExecutor;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * Created by SkyBeast on 11/02/17.
@@ -31,13 +29,57 @@ public final class Main extends Plugin
 					throw new CommandCreationException("Plugin given is not a Bukkit Plugin");
 
 				register(clazz, (Plugin) plugin);
+				CmdCompletionCache.clear(); //The commands changed
 			}
 			catch (ReflectiveOperationException e)
 			{
 				throw new CommandCreationException("Cannot create command", e);
 			}
 		}
+
+		@Override
+		protected void unregisterCommandsImpl(Object plugin)
+		{
+			if (!(plugin instanceof Plugin))
+				throw new CommandCreationException("Plugin given is not a BungeeCord Plugin");
+
+			unregister((Plugin) plugin);
+		}
+
+		@Override
+		protected void unregisterCommandsImpl(Class<?> clazz)
+		{
+			unregister(clazz);
+		}
+
+		@Override
+		protected void registerSenderTypeImpl(Class<?> senderClass, String name)
+		{
+			if (!CommandSender.class.isAssignableFrom(senderClass))
+				throw new CommandCreationException("Sender type " + senderClass + " is not a BungeeCord CommandSender");
+
+			CmdSenderType.register(senderClass, name);
+		}
+
+		@Override
+		protected void invalidateTabCompletesImpl()
+		{
+			CmdCompletionCache.invalidate(CmdCompletionCache.Source.SERIALIZERS);
+		}
+
+		@Override
+		protected void invalidatePermissionsImpl()
+		{
+			CmdPermissions.invalidate();
+		}
+
+		@Override
+		protected void invalidatePermissionsImpl(UUID player)
+		{
+			CmdPermissions.invalidate(player);
+		}
 	};
+	private static final Map<Plugin, List<Registration>> REGISTRATIONS = new HashMap<>(); //The commands, by plugin
 	@Getter
 	private static Main instance;
 
@@ -46,6 +88,26 @@ public final class Main extends Plugin
 	{
 		instance = this;
 		CmdConfig.loadConfig();
+		CmdConfigWatcher.start();
+		CmdAsync.start();
+		CmdPlayerIndex.start(this);
+		CmdLocales.start(this);
+		CmdPermissions.start(this);
+	}
+
+	@Override
+	public void onDisable()
+	{
+		CmdConfigWatcher.stop();
+		CmdAsync.stop();
+
+		//BungeeCord has no event for the plugins disabled: release them all with this one
+		List<Plugin> plugins;
+		synchronized (REGISTRATIONS)
+		{
+			plugins = new ArrayList<>(REGISTRATIONS.keySet());
+		}
+		plugins.forEach(Main::unregister);
 	}
 
 	/**
@@ -58,33 +120,105 @@ public final class Main extends Plugin
 	private static void register(Class<?> clazz, Plugin plugin)
 			throws ReflectiveOperationException
 	{
-		Command cmdAnnotation = clazz.getAnnotation(Command.class);
-
-		if (cmdAnnotation != null) //Class is a command compound
-			register(new CmdCompound(clazz, cmdAnnotation), plugin);
-		else //Class has command methods
-		{
-			for (Method method : clazz.getMethods())
-			{
-				Command annotation = method.getAnnotation(Command.class);
-				if (annotation != null)
-					register(new CmdMethod(method, annotation), plugin);
-			}
-		}
+		//The compound if the class is a command compound, else its command methods
+		for (Cmd cmd : CmdPlans.build(clazz))
+			register(cmd, clazz, plugin);
 	}
 
 	/**
 	 * Register a command into BungeeCord.
 	 *
 	 * @param cmd    the command
+	 * @param clazz  the class of the command
 	 * @param plugin the plugin of the command
 	 * @throws ReflectiveOperationException reflection-related method
 	 */
-	private static void register(Cmd cmd, Plugin plugin)
+	private static void register(Cmd cmd, Class<?> clazz, Plugin plugin)
 			throws ReflectiveOperationException
 	{
+		CmdConfig.register(cmd); //Render the usages
+
 		CustomCommand command = new CustomCommand(cmd);
 		ProxyServer.getInstance().getPluginManager().registerCommand(plugin, command);
+
+		synchronized (REGISTRATIONS)
+		{
+			REGISTRATIONS.computeIfAbsent(plugin, p -> new ArrayList<>()).add(new Registration(clazz, command));
+		}
+	}
+
+	/**
+	 * Unregister the commands of a plugin, and release its classes.
+	 *
+	 * @param plugin the plugin
+	 */
+	private static void unregister(Plugin plugin)
+	{
+		List<Registration> registrations;
+		synchronized (REGISTRATIONS)
+		{
+			registrations = REGISTRATIONS.remove(plugin);
+		}
+
+		if (registrations != null)
+			unregister(registrations);
+
+		//The caches keyed by class would keep the class loader of the plugin alive
+		ClassLoader loader = plugin.getClass().getClassLoader();
+		CmdSerializers.release(loader);
+		CmdChoiceLists.release(loader);
+		CmdSenderType.release(loader);
+	}
+
+	/**
+	 * Unregister the commands registered from a class.
+	 *
+	 * @param clazz the class
+	 */
+	private static void unregister(Class<?> clazz)
+	{
+		List<Registration> registrations = new ArrayList<>();
+		synchronized (REGISTRATIONS)
+		{
+			for (List<Registration> list : REGISTRATIONS.values())
+			{
+				for (Iterator<Registration> it = list.iterator(); it.hasNext(); )
+				{
+					Registration registration = it.next();
+					if (registration.clazz == clazz)
+					{
+						registrations.add(registration);
+						it.remove();
+					}
+				}
+			}
+			REGISTRATIONS.values().removeIf(List::isEmpty);
+		}
+
+		unregister(registrations);
+	}
+
+	/**
+	 * Unregister commands from BungeeCord, and drop what was cached for them.
+	 *
+	 * @param registrations the registrations of the commands
+	 */
+	private static void unregister(List<Registration> registrations)
+	{
+		if (registrations.isEmpty())
+			return;
+
+		List<Cmd> roots = new ArrayList<>();
+		for (Registration registration : registrations)
+		{
+			ProxyServer.getInstance().getPluginManager().unregisterCommand(registration.command);
+			roots.add(registration.command.cmd);
+		}
+
+		CmdConfig.unregister(roots);
+		CmdCompletionCache.clear();
+		CmdPermissions.invalidate();
+		CmdLocales.clear();
 	}
 
 	/**
@@ -139,15 +273,22 @@ public final class Main extends Plugin
 	 * @param cmd    the command
 	 * @param label  the label of the command
 	 * @param args   the args of the command
-	 * @return the list of tab-completes
+	 * @return the tab-completes
 	 */
-	private static List<String> completeTab(CommandSender sender, Cmd cmd,
-	                                        String label, String[] args)
+	private static Iterable<String> completeTab(CommandSender sender, Cmd cmd,
+	                                            String label, String[] args)
 	{
-		List<String> tabCompletes = cmd.completeTab(sender, args, 0);
+		List<String> tabCompletes = cmd.completeTab(sender, args, 0); //Views, iterated lazily by Bungee
 		return tabCompletes == null ? Collections.emptyList() : tabCompletes;
 	}
 
+	@AllArgsConstructor
+	private static class Registration
+	{
+		final Class<?> clazz; //The class the command was registered from
+		final CustomCommand command; //The BungeeCord command
+	}
+
 	@ToString
 	private static class CustomCommand extends net.md_5.bungee.api.plugin.Command implements TabExecutor
 	{
@@ -0,0 +1,321 @@
+package fr.skybeast.commandcreator.processor;
+
+import fr.skybeast.commandcreator.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The annotation processor of the commands.
+ * <p>
+ * It reports the misuses of the annotations, which would otherwise only be found when the commands are registered,
+ * as compile errors. For each command compound and each class with command methods, it generates a
+ * {@link GeneratedCommands} holding the plans of the commands and calling them directly, so they are registered and
+ * dispatched without reflection.
+ */
+@SupportedAnnotationTypes({
+		"fr.skybeast.commandcreator.Command",
+		"fr.skybeast.commandcreator.CommandExecutor"
+})
+public final class CommandProcessor extends AbstractProcessor
+{
+	/*
+	 * The command senders of the platforms, checked if on the class path
+	 */
+	private static final String[] SENDER_TYPES = {
+			"org.bukkit.command.CommandSender",
+			"net.md_5.bungee.api.CommandSender"
+	};
+
+	private Elements elements;
+	private Types types;
+	private Messager messager;
+	private final List<TypeMirror> senderTypes = new ArrayList<>(); //The command senders found on the class path
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv)
+	{
+		super.init(processingEnv);
+		elements = processingEnv.getElementUtils();
+		types = processingEnv.getTypeUtils();
+		messager = processingEnv.getMessager();
+
+		for (String name : SENDER_TYPES)
+		{
+			TypeElement type = elements.getTypeElement(name);
+			if (type != null)
+				senderTypes.add(type.asType());
+		}
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		boolean valid = true;
+		Set<TypeElement> classes = new LinkedHashSet<>(); //The classes to generate the commands of
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(Command.class))
+		{
+			if (element.getKind() == ElementKind.METHOD)
+			{
+				valid &= validateMethod((ExecutableElement) element);
+				classes.add((TypeElement) element.getEnclosingElement());
+			}
+			else
+			{
+				valid &= validateCompound((TypeElement) element);
+				classes.add((TypeElement) element);
+			}
+		}
+
+		//The default executors, by class
+		Map<TypeElement, List<ExecutableElement>> executors = new LinkedHashMap<>();
+		for (Element element : roundEnv.getElementsAnnotatedWith(CommandExecutor.class))
+		{
+			valid &= validateMethod((ExecutableElement) element);
+			executors.computeIfAbsent((TypeElement) element.getEnclosingElement(), c -> new ArrayList<>())
+					.add((ExecutableElement) element);
+		}
+
+		for (Map.Entry<TypeElement, List<ExecutableElement>> entry : executors.entrySet())
+			valid &= validateExecutors(entry.getKey(), entry.getValue());
+
+		if (!valid) //Nothing is generated from misused annotations
+			return false;
+
+		for (TypeElement clazz : classes)
+			if (isAccessible(clazz))
+				generate(clazz);
+
+		return false; //Let the other processors see the annotations
+	}
+
+	/* -------------------- */
+	/* ---- VALIDATION ---- */
+	/* -------------------- */
+
+	/**
+	 * Validate a command compound.
+	 *
+	 * @param clazz the class of the compound
+	 * @return true if valid
+	 */
+	private boolean validateCompound(TypeElement clazz)
+	{
+		//Sub compounds are found with Class.getClasses
+		if (clazz.getEnclosingElement().getKind() != ElementKind.PACKAGE
+				&& clazz.getEnclosingElement().getAnnotation(Command.class) != null
+				&& !clazz.getModifiers().contains(Modifier.PUBLIC))
+			return error(clazz, "A sub command class must be public");
+
+		return true;
+	}
+
+	/**
+	 * Validate the default executors of a class.
+	 *
+	 * @param clazz   the class
+	 * @param methods the default executors of the class
+	 * @return true if valid
+	 */
+	private boolean validateExecutors(TypeElement clazz, List<ExecutableElement> methods)
+	{
+		boolean valid = true;
+		boolean found = false;
+		for (ExecutableElement method : methods)
+		{
+			if (clazz.getAnnotation(Command.class) == null)
+				valid = error(method, "A CommandExecutor must be in a @Command class");
+			if (found)
+				valid = error(method, "Cannot have two CommandExecutor per command");
+			if (method.getParameters().size() != 1)
+				valid = error(method, "A CommandExecutor should only have one argument");
+			found = true;
+		}
+		return valid;
+	}
+
+	/**
+	 * Validate a command method.
+	 *
+	 * @param method the method
+	 * @return true if valid
+	 */
+	private boolean validateMethod(ExecutableElement method)
+	{
+		boolean valid = true;
+
+		//Commands are found with Class.getMethods
+		if (!method.getModifiers().contains(Modifier.PUBLIC))
+			valid = error(method, "A command must be public");
+		if (!method.getModifiers().contains(Modifier.STATIC))
+			valid = error(method, "A command must be static");
+
+		TypeMirror returnType = method.getReturnType();
+		if (returnType.getKind() != TypeKind.VOID && returnType.getKind() != TypeKind.BOOLEAN
+				&& (method.getAnnotation(Async.class) == null || !isType(returnType, Runnable.class)))
+			valid = error(method, "A command cannot return " + returnType);
+
+		List<? extends VariableElement> parameters = method.getParameters();
+		if (parameters.isEmpty())
+			return error(method, "A command must accept a command sender as first parameter");
+
+		if (!isSender(parameters.get(0).asType()))
+			valid = error(parameters.get(0), "Command sender type " + parameters.get(0).asType() +
+					" cannot be resolved");
+
+		boolean isOptionalDone = false; //Used to know if optional already started
+		for (int i = 1; i < parameters.size(); i++)
+		{
+			VariableElement param = parameters.get(i);
+			TypeMirror type = param.asType();
+
+			if (param.getAnnotation(Opt.class) != null)
+			{
+				isOptionalDone = true;
+				if (type.getKind().isPrimitive()) //Primitives are not nullable, so cannot be optionals
+					valid = error(param, "Optional value(s) cannot be primitives");
+			}
+			else if (isOptionalDone) //The value is not optional but the previous value was
+				valid = error(param, "Optional value(s) must be last value(s)");
+
+			if (type.getKind() == TypeKind.ARRAY && i != parameters.size() - 1
+					&& param.getAnnotation(Serial.class) == null)
+				valid = error(param, "Only the last argument can be an array");
+
+			valid &= validateSerializer(param);
+		}
+
+		return valid;
+	}
+
+	/**
+	 * Validate the custom serializer of a parameter: it is created with its public constructor without parameters.
+	 *
+	 * @param param the parameter
+	 * @return true if valid
+	 */
+	private boolean validateSerializer(VariableElement param)
+	{
+		Serial serial = param.getAnnotation(Serial.class);
+		if (serial == null)
+			return true;
+
+		TypeElement serializer;
+		try
+		{
+			serial.value(); //Always throws, the class is not loaded
+			return true;
+		}
+		catch (MirroredTypeException e)
+		{
+			serializer = (TypeElement) types.asElement(e.getTypeMirror());
+		}
+
+		Set<Modifier> modifiers = serializer.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT) || !modifiers.contains(Modifier.PUBLIC))
+			return error(param, "Serializer " + serializer + " must be a public concrete class");
+
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(serializer.getEnclosedElements()))
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+				return true;
+
+		return error(param, "Serializer " + serializer + " must have a public constructor without parameters");
+	}
+
+	/**
+	 * Check if a type is a command sender of the platforms on the class path.
+	 *
+	 * @param type the type
+	 * @return true if it is a command sender, or if no platform is on the class path
+	 */
+	private boolean isSender(TypeMirror type)
+	{
+		if (senderTypes.isEmpty())
+			return true;
+
+		for (TypeMirror sender : senderTypes)
+			if (types.isAssignable(types.erasure(type), sender))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Check if a type is a class.
+	 *
+	 * @param type  the type
+	 * @param clazz the class
+	 * @return true if the type is the class
+	 */
+	private boolean isType(TypeMirror type, Class<?> clazz)
+	{
+		return types.isSameType(type, elements.getTypeElement(clazz.getCanonicalName()).asType());
+	}
+
+	/**
+	 * Check if a class can be referenced from its package.
+	 *
+	 * @param clazz the class
+	 * @return true if the class and the classes enclosing it are not private
+	 */
+	private static boolean isAccessible(TypeElement clazz)
+	{
+		for (Element e = clazz; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement())
+			if (e.getModifiers().contains(Modifier.PRIVATE))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Report a misuse as a compile error.
+	 *
+	 * @param element the misused element
+	 * @param message the message
+	 * @return false
+	 */
+	private boolean error(Element element, String message)
+	{
+		messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+		return false;
+	}
+
+	/* -------------------- */
+	/* ---- GENERATION ---- */
+	/* -------------------- */
+
+	/**
+	 * Generate the plans and the dispatcher of the commands of a class.
+	 *
+	 * @param clazz the class
+	 */
+	private void generate(TypeElement clazz)
+	{
+		DispatcherWriter writer = new DispatcherWriter(elements, types, clazz);
+		try
+		{
+			writer.write(processingEnv.getFiler());
+		}
+		catch (IOException e)
+		{
+			error(clazz, "Cannot generate " + writer.getName() + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package fr.skybeast.commandcreator.processor;
+
+import fr.skybeast.commandcreator.*;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.*;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The writer of the {@link GeneratedCommands} of a class.
+ * <p>
+ * The plans of the commands are written as constants, found the way the runtime would find them: the public methods
+ * and member classes of the class. Each command method gets an index, and is called from a switch on it, with its
+ * arguments cast from the arrays of the invocation.
+ */
+final class DispatcherWriter
+{
+	private static final String PLAN = CommandPlan.class.getName();
+	private static final String PARAMETER = CommandPlan.Parameter.class.getCanonicalName();
+
+	private final Elements elements;
+	private final Types types;
+	private final TypeElement clazz; //The class of the commands
+	private final List<String> plans = new ArrayList<>(); //The expressions of the plans of the class
+	private final List<String> targets = new ArrayList<>(); //The command methods, by index, as called
+	private final List<ExecutableElement> methods = new ArrayList<>(); //The command methods, by index
+	private final String packageName; //The package of the class
+	private final String simpleName; //The simple name of the generated class
+
+	/**
+	 * Prepare the dispatcher of a class.
+	 *
+	 * @param elements the element utils
+	 * @param types    the type utils
+	 * @param clazz    the class, already validated
+	 */
+	DispatcherWriter(Elements elements, Types types, TypeElement clazz)
+	{
+		this.elements = elements;
+		this.types = types;
+		this.clazz = clazz;
+
+		packageName = elements.getPackageOf(clazz).getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(clazz).toString();
+		simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+				+ GeneratedCommands.SUFFIX;
+
+		Command annotation = clazz.getAnnotation(Command.class);
+		if (annotation != null) //Class is a command compound
+			plans.add(compound(clazz, annotation, "\t\t\t"));
+		else //Class has command methods
+		{
+			for (ExecutableElement method : publicMethods(clazz))
+			{
+				Command methodAnnotation = method.getAnnotation(Command.class);
+				if (methodAnnotation != null)
+					plans.add(method(clazz, method, methodAnnotation, "\t\t\t"));
+			}
+		}
+	}
+
+	/**
+	 * Get the name of the generated class.
+	 *
+	 * @return the qualified name
+	 */
+	String getName()
+	{
+		return packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+	}
+
+	/**
+	 * Write the generated class.
+	 *
+	 * @param filer the filer
+	 * @throws IOException if the source file cannot be written
+	 */
+	void write(Filer filer)
+			throws IOException
+	{
+		try (PrintWriter out = new PrintWriter(filer.createSourceFile(getName(), clazz).openWriter()))
+		{
+			if (!packageName.isEmpty())
+			{
+				out.println("package " + packageName + ';');
+				out.println();
+			}
+
+			out.println("/**");
+			out.println(" * The commands of {@link " + clazz.getQualifiedName() + "}, planned and called directly.");
+			out.println(" * Generated by the CommandCreator processor, do not edit.");
+			out.println(" */");
+			out.println("public final class " + simpleName + " implements " + GeneratedCommands.class.getName());
+			out.println("{");
+			out.println("\tprivate static final " + PLAN + "[] PLANS = {");
+			for (String plan : plans)
+				out.println("\t\t\t" + plan + ',');
+			out.println("\t};");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic " + PLAN + "[] getPlans()");
+			out.println("\t{");
+			out.println("\t\treturn PLANS.clone();");
+			out.println("\t}");
+			out.println();
+			out.println("\t@Override");
+			out.println("\t@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+			out.println("\tpublic Object invoke(int index, Object[] args, long[] primitives)");
+			out.println("\t\t\tthrows Throwable");
+			out.println("\t{");
+			out.println("\t\tswitch (index)");
+			out.println("\t\t{");
+			for (int i = 0; i < methods.size(); i++)
+				writeCase(out, i, targets.get(i), methods.get(i));
+			out.println("\t\t\tdefault:");
+			out.println("\t\t\t\tthrow new IndexOutOfBoundsException(\"No command method at \" + index);");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println("}");
+		}
+	}
+
+	/* --------------- */
+	/* ---- PLANS ---- */
+	/* --------------- */
+
+	/**
+	 * Get the expression of the plan of a compound.
+	 *
+	 * @param compound   the class of the compound
+	 * @param annotation the @Command annotation of the class
+	 * @param indent     the indentation of the expression
+	 * @return the expression
+	 */
+	private String compound(TypeElement compound, Command annotation, String indent)
+	{
+		String inner = indent + "\t\t";
+		String executor = "null";
+		List<String> subCommands = new ArrayList<>();
+
+		//Find the default executor and the sub commands in methods
+		for (ExecutableElement method : publicMethods(compound))
+		{
+			if (method.getAnnotation(CommandExecutor.class) != null)
+			{
+				Async async = method.getAnnotation(Async.class);
+				executor = PLAN + ".executor(" + register(compound, method) + ", " + name(compound, method) + ", "
+						+ classLiteral(method.getParameters().get(0).asType()) + ", " + (async != null) + ", "
+						+ (async == null ? 0 : async.timeout()) + "L)";
+				continue;
+			}
+
+			Command subAnnotation = method.getAnnotation(Command.class);
+			if (subAnnotation != null)
+				subCommands.add(method(compound, method, subAnnotation, inner));
+		}
+
+		//Find the sub commands in member classes
+		for (TypeElement member : ElementFilter.typesIn(elements.getAllMembers(compound)))
+		{
+			Command subAnnotation = member.getAnnotation(Command.class);
+			if (subAnnotation != null && member.getModifiers().contains(Modifier.PUBLIC))
+				subCommands.add(compound(member, subAnnotation, inner));
+		}
+
+		StringBuilder builder = new StringBuilder(PLAN).append(".compound(")
+				.append(string(label(annotation, lowerFirst(compound.getSimpleName().toString())))).append(", ")
+				.append(string(annotation.description())).append(", ")
+				.append(strings(annotation.permissions())).append(", ")
+				.append(strings(annotation.aliases())).append(",\n")
+				.append(inner).append(executor);
+		for (String subCommand : subCommands)
+			builder.append(",\n").append(inner).append(subCommand);
+
+		return builder.append(')')
+				.toString();
+	}
+
+	/**
+	 * Get the expression of the plan of a command method.
+	 *
+	 * @param owner      the class the method is found in
+	 * @param method     the method
+	 * @param annotation the @Command annotation of the method
+	 * @param indent     the indentation of the expression
+	 * @return the expression
+	 */
+	private String method(TypeElement owner, ExecutableElement method, Command annotation, String indent)
+	{
+		String inner = indent + "\t\t";
+		List<? extends VariableElement> parameters = method.getParameters();
+		Async async = method.getAnnotation(Async.class);
+
+		StringBuilder builder = new StringBuilder(PLAN).append(".method(")
+				.append(register(owner, method)).append(", ")
+				.append(name(owner, method)).append(",\n")
+				.append(inner).append(string(label(annotation, method.getSimpleName().toString()))).append(", ")
+				.append(string(annotation.description())).append(", ")
+				.append(strings(annotation.permissions())).append(", ")
+				.append(strings(annotation.aliases())).append(", ")
+				.append(parameters.isEmpty() ? "null" : classLiteral(parameters.get(0).asType())).append(", ")
+				.append(async != null).append(", ")
+				.append(async == null ? 0 : async.timeout()).append('L');
+		for (int i = 1; i < parameters.size(); i++) //Don't use first parameter -- sender type
+			builder.append(",\n").append(inner).append(parameter(parameters.get(i)));
+
+		return builder.append(')')
+				.toString();
+	}
+
+	/**
+	 * Get the expression of the plan of a parameter.
+	 *
+	 * @param param the parameter
+	 * @return the expression
+	 */
+	private String parameter(VariableElement param)
+	{
+		Arg arg = param.getAnnotation(Arg.class);
+
+		String name = arg == null || arg.value().isEmpty() ? param.getSimpleName().toString() : arg.value();
+		String valueType = arg == null || arg.type().isEmpty() ? "null" : string(arg.type());
+		return PARAMETER + ".of(" + classLiteral(param.asType()) + ", "
+				+ string(name) + ", "
+				+ string(arg == null ? "" : arg.desc()) + ", "
+				+ valueType + ", "
+				+ (arg == null ? -1 : arg.maxTabCompletes()) + ", "
+				+ (param.getAnnotation(Opt.class) != null) + ", "
+				+ serializer(param) + ')';
+	}
+
+	/**
+	 * Get the class literal of the custom serializer of a parameter.
+	 *
+	 * @param param the parameter
+	 * @return the class literal, or null if none
+	 */
+	private String serializer(VariableElement param)
+	{
+		Serial serial = param.getAnnotation(Serial.class);
+		if (serial == null)
+			return "null";
+
+		try
+		{
+			serial.value(); //Always throws, the class is not loaded
+			return "null";
+		}
+		catch (MirroredTypeException e)
+		{
+			return classLiteral(e.getTypeMirror());
+		}
+	}
+
+	/**
+	 * Give its index to a command method.
+	 *
+	 * @param owner  the class the method is found in
+	 * @param method the method
+	 * @return the index
+	 */
+	private int register(TypeElement owner, ExecutableElement method)
+	{
+		targets.add(owner.getQualifiedName() + "." + method.getSimpleName());
+		methods.add(method);
+		return methods.size() - 1;
+	}
+
+	/**
+	 * Get the public methods of a class, inherited ones included, as found by {@link Class#getMethods()}.
+	 *
+	 * @param clazz the class
+	 * @return the methods
+	 */
+	private List<ExecutableElement> publicMethods(TypeElement clazz)
+	{
+		List<ExecutableElement> found = new ArrayList<>();
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(clazz)))
+			if (method.getModifiers().contains(Modifier.PUBLIC))
+				found.add(method);
+
+		return found;
+	}
+
+	/**
+	 * Get the string literal of the name of a method, for the error messages.
+	 *
+	 * @param owner  the class the method is found in
+	 * @param method the method
+	 * @return the literal, such as {@code "demo.Demo.give(org.bukkit.entity.Player, int)"}
+	 */
+	private String name(TypeElement owner, ExecutableElement method)
+	{
+		StringBuilder builder = new StringBuilder(owner.getQualifiedName())
+				.append('.')
+				.append(method.getSimpleName())
+				.append('(');
+
+		List<? extends VariableElement> parameters = method.getParameters();
+		for (int i = 0; i < parameters.size(); i++)
+		{
+			if (i != 0)
+				builder.append(", ");
+			builder.append(types.erasure(parameters.get(i).asType()));
+		}
+
+		return string(builder.append(')').toString());
+	}
+
+	/**
+	 * Get the label of a command, or the fallback label if missing.
+	 *
+	 * @param annotation    the @Command annotation
+	 * @param fallbackLabel the fallback label
+	 * @return the label
+	 */
+	private static String label(Command annotation, String fallbackLabel)
+	{
+		return annotation.value().isEmpty() ? fallbackLabel : annotation.value();
+	}
+
+	/**
+	 * Lower the first letter of a String.
+	 *
+	 * @param str the String
+	 * @return the new String
+	 */
+	private static String lowerFirst(String str)
+	{
+		char ch = Character.toLowerCase(str.charAt(0));
+		return ch + str.substring(1, str.length());
+	}
+
+	/**
+	 * Get the class literal of a type.
+	 *
+	 * @param type the type
+	 * @return the class literal of its erasure
+	 */
+	private String classLiteral(TypeMirror type)
+	{
+		return types.erasure(type) + ".class";
+	}
+
+	/**
+	 * Get the literal of a String.
+	 *
+	 * @param str the String
+	 * @return the literal
+	 */
+	private String string(String str)
+	{
+		return elements.getConstantExpression(str);
+	}
+
+	/**
+	 * Get the expression of an array of Strings.
+	 *
+	 * @param strs the Strings
+	 * @return the expression
+	 */
+	private String strings(String[] strs)
+	{
+		StringBuilder builder = new StringBuilder("new String[]{");
+		for (int i = 0; i < strs.length; i++)
+		{
+			if (i != 0)
+				builder.append(", ");
+			builder.append(string(strs[i]));
+		}
+
+		return builder.append('}')
+				.toString();
+	}
+
+	/* ---------------- */
+	/* ---- INVOKE ---- */
+	/* ---------------- */
+
+	/**
+	 * Write the call of a command method.
+	 *
+	 * @param out    the output
+	 * @param index  the index of the method
+	 * @param target the method, as called
+	 * @param method the method
+	 */
+	private void writeCase(PrintWriter out, int index, String target, ExecutableElement method)
+	{
+		StringBuilder call = new StringBuilder(target).append('(');
+
+		List<? extends VariableElement> parameters = method.getParameters();
+		for (int i = 0; i < parameters.size(); i++)
+		{
+			if (i != 0)
+				call.append(", ");
+			call.append(argument(parameters.get(i).asType(), i));
+		}
+		call.append(')');
+
+		out.println("\t\t\tcase " + index + ":");
+		if (method.getReturnType().getKind() == TypeKind.VOID)
+		{
+			out.println("\t\t\t\t" + call + ';');
+			out.println("\t\t\t\treturn null;");
+		}
+		else
+			out.println("\t\t\t\treturn " + call + ';');
+	}
+
+	/**
+	 * Get the expression of an argument.
+	 *
+	 * @param type  the type of the parameter
+	 * @param index the index of the parameter
+	 * @return the expression
+	 */
+	private String argument(TypeMirror type, int index)
+	{
+		String bits = "primitives[" + index + ']';
+		switch (type.getKind())
+		{
+			case BOOLEAN:
+				return "(" + bits + " & 1) != 0";
+			case FLOAT:
+				return "Float.intBitsToFloat((int) " + bits + ')';
+			case DOUBLE:
+				return "Double.longBitsToDouble(" + bits + ')';
+			case BYTE:
+			case SHORT:
+			case INT:
+			case LONG:
+			case CHAR:
+				return "(" + type + ") " + bits;
+			default:
+				return "(" + types.erasure(type) + ") args[" + index + ']';
+		}
+	}
+}